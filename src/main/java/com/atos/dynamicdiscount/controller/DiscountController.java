@@ -1,13 +1,25 @@
 package com.atos.dynamicdiscount.controller;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.config.PoolStatus;
+import com.atos.dynamicdiscount.processor.manager.AdaptiveConcurrencyController;
 import com.atos.dynamicdiscount.processor.manager.AsyncExecutor;
+import com.atos.dynamicdiscount.processor.manager.ConcurrencyDecision;
+import com.atos.dynamicdiscount.processor.manager.DryRunProcessor;
+import com.atos.dynamicdiscount.processor.manager.DryRunReport;
+import com.atos.dynamicdiscount.processor.service.dryrun.DryRunResult;
+import com.atos.dynamicdiscount.processor.service.evaluation.DiscountMemo;
+import com.atos.dynamicdiscount.processor.service.evaluation.MemoStatus;
 
 @RestController
 @RequestMapping("/api/discounts")
@@ -16,10 +28,22 @@ public class DiscountController {
     @Autowired
     private AsyncExecutor asyncExecutor;
 
+    @Autowired
+    private AdaptiveConcurrencyController concurrencyController;
+
+    @Autowired
+    private ConnectionPools connectionPools;
+
+    @Autowired
+    private DryRunProcessor dryRunProcessor;
+
+    @Autowired
+    private DiscountMemo discountMemo;
+
     /**
      * Endpoint to process discounts.
      *
-     * @param mode The mode (e.g., "c" for new request, "r" for resume).
+     * @param mode The mode (e.g., "c" for new request, "r" for resume, "d" for dry run).
      * @param inputValue The input value (e.g., bill cycle or request ID).
      * @return Response indicating success or failure.
      */
@@ -30,5 +54,56 @@ public class DiscountController {
             @RequestParam String inputValue) {
     	asyncExecutor.processDiscountsAsync(mode, inputValue);
         return ResponseEntity.ok("Processing initiated. You can check the logs for updates.");
-    }    
+    }
+
+    /**
+     * Endpoint to inspect the adaptive concurrency controller.
+     *
+     * @return The most recent concurrency decisions, latest first.
+     */
+    @GetMapping("/concurrency")
+    public ResponseEntity<List<ConcurrencyDecision>> getConcurrencyDecisions() {
+        return ResponseEntity.ok(concurrencyController.getDecisions());
+    }
+
+    /**
+     * Endpoint to inspect the connection pools.
+     *
+     * @return The saturation of every pool (one per role when pool bulkheads are enabled).
+     */
+    @GetMapping("/pools")
+    public ResponseEntity<List<PoolStatus>> getPoolStatus() {
+        return ResponseEntity.ok(connectionPools.getStatus());
+    }
+
+    /**
+     * Endpoint to inspect the last dry run.
+     *
+     * @return The report of the last dry run, or 204 when none has completed yet.
+     */
+    @GetMapping("/dryrun")
+    public ResponseEntity<DryRunReport> getDryRunReport() {
+        DryRunReport report = dryRunProcessor.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Endpoint to read the grants computed by the last in-memory dry run.
+     *
+     * @return The computed grants, one per contract.
+     */
+    @GetMapping("/dryrun/results")
+    public ResponseEntity<List<DryRunResult>> getDryRunResults() {
+        return ResponseEntity.ok(dryRunProcessor.getLastResults());
+    }
+
+    /**
+     * Endpoint to inspect the discount memo.
+     *
+     * @return The hit/miss statistics of its caches since the configuration last changed, across requests.
+     */
+    @GetMapping("/memo")
+    public ResponseEntity<List<MemoStatus>> getMemoStatus() {
+        return ResponseEntity.ok(discountMemo.getStatus());
+    }
 }
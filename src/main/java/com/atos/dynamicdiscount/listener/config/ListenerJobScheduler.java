@@ -6,6 +6,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import com.atos.dynamicdiscount.listener.service.GmdRequestService;
+import com.atos.dynamicdiscount.processor.config.DataSourceRole;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,7 +23,7 @@ public class ListenerJobScheduler {
     @Scheduled(fixedRateString = "#{T(java.lang.Long).parseLong('${job.scheduler.fixedRate:3000000}')}")
 	public void runListenerJob() {
 		try {
-			requestProcessingService.processJob();
+			DataSourceRole.runAs(DataSourceRole.LISTENER, requestProcessingService::processJob);
 		} catch (Exception e) {
 			log.error("An error occurred while processing the job: {}", e.getMessage(), e);
 		}
@@ -0,0 +1,272 @@
+package com.atos.dynamicdiscount.model.dto;
+
+import java.util.Arrays;
+
+/**
+ * Columnar form of a package's discount assignments: one primitive array per column of the
+ * enrichment query (struct-of-arrays), rows ordered by co_id. Contracts are ranges of rows,
+ * so a contract's assignments are scanned without per-row objects. Values and sentinels are
+ * those of {@link DiscountRow}; the request ID is the same for all rows and kept once.
+ */
+public final class DiscountColumns {
+
+	private final int requestId;
+	private final int size;
+	private final long[] assignId;
+	private final long[] assignDate;
+	private final int[] discSncode;
+	private final int[] discId;
+	private final int[] applyCount;
+	private final int[] ovwApplyCount;
+	private final int[] customerId;
+	private final int[] coId;
+	private final long[] lbcDate;
+	private final String[] prgcode;
+	private final int[] tmCode;
+	private final int[] offerSnCode;
+	private final long[] offerValidFromDate;
+	private final char[] offerStatus;
+	private final float[] offerPrice;
+	private final int[] aloSnCode;
+	private final long[] aloValidFromDate;
+	private final char[] aloStatus;
+	private final float[] aloPrice;
+
+	// Contract c spans rows [contractStart[c], contractStart[c + 1]); contractCoId is ascending
+	private final int contractCount;
+	private final int[] contractCoId;
+	private final int[] contractStart;
+
+	private DiscountColumns(Builder builder) {
+		this.requestId = builder.requestId;
+		this.size = builder.size;
+		this.assignId = builder.assignId;
+		this.assignDate = builder.assignDate;
+		this.discSncode = builder.discSncode;
+		this.discId = builder.discId;
+		this.applyCount = builder.applyCount;
+		this.ovwApplyCount = builder.ovwApplyCount;
+		this.customerId = builder.customerId;
+		this.coId = builder.coId;
+		this.lbcDate = builder.lbcDate;
+		this.prgcode = builder.prgcode;
+		this.tmCode = builder.tmCode;
+		this.offerSnCode = builder.offerSnCode;
+		this.offerValidFromDate = builder.offerValidFromDate;
+		this.offerStatus = builder.offerStatus;
+		this.offerPrice = builder.offerPrice;
+		this.aloSnCode = builder.aloSnCode;
+		this.aloValidFromDate = builder.aloValidFromDate;
+		this.aloStatus = builder.aloStatus;
+		this.aloPrice = builder.aloPrice;
+		this.contractCount = builder.contractCount;
+		this.contractCoId = builder.contractCoId;
+		this.contractStart = builder.contractStart;
+		this.contractStart[contractCount] = size;
+	}
+
+	public static Builder builder(int requestId) {
+		return new Builder(requestId);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int contractCount() {
+		return contractCount;
+	}
+
+	public int contractCoId(int contract) {
+		return contractCoId[contract];
+	}
+
+	public int contractStart(int contract) {
+		return contractStart[contract];
+	}
+
+	public int contractEnd(int contract) {
+		return contractStart[contract + 1];
+	}
+
+	/**
+	 * Index of the contract with the given coId, or a negative value when it has no assignments.
+	 */
+	public int indexOfContract(int coId) {
+		return Arrays.binarySearch(contractCoId, 0, contractCount, coId);
+	}
+
+	/**
+	 * Number of assignments of the contract with the given coId.
+	 */
+	public int rowCount(int coId) {
+		int contract = indexOfContract(coId);
+		return contract < 0 ? 0 : contractEnd(contract) - contractStart(contract);
+	}
+
+	/**
+	 * Row i as a {@link DiscountRow}, for the few rows that need an object (remarks, histories).
+	 */
+	public DiscountRow row(int i) {
+		return new DiscountRow(requestId, assignId[i], assignDate[i], discSncode[i], discId[i], applyCount[i],
+				ovwApplyCount[i], customerId[i], coId[i], lbcDate[i], prgcode[i], tmCode[i], offerSnCode[i],
+				offerValidFromDate[i], offerStatus[i], offerPrice[i], aloSnCode[i], aloValidFromDate[i],
+				aloStatus[i], aloPrice[i]);
+	}
+
+	public long assignId(int i) {
+		return assignId[i];
+	}
+
+	public long assignDate(int i) {
+		return assignDate[i];
+	}
+
+	public int discId(int i) {
+		return discId[i];
+	}
+
+	public int applyCount(int i) {
+		return applyCount[i];
+	}
+
+	public int ovwApplyCount(int i) {
+		return ovwApplyCount[i];
+	}
+
+	public String prgcode(int i) {
+		return prgcode[i];
+	}
+
+	public int tmCode(int i) {
+		return tmCode[i];
+	}
+
+	public int offerSnCode(int i) {
+		return offerSnCode[i];
+	}
+
+	public char offerStatus(int i) {
+		return offerStatus[i];
+	}
+
+	public float offerPrice(int i) {
+		return offerPrice[i];
+	}
+
+	public float aloPrice(int i) {
+		return aloPrice[i];
+	}
+
+	/**
+	 * Appends rows in co_id order; arrays grow by doubling and are handed over as they are.
+	 */
+	public static final class Builder {
+
+		private static final int INITIAL_CAPACITY = 1024;
+
+		private final int requestId;
+		private int size;
+		private long[] assignId = new long[INITIAL_CAPACITY];
+		private long[] assignDate = new long[INITIAL_CAPACITY];
+		private int[] discSncode = new int[INITIAL_CAPACITY];
+		private int[] discId = new int[INITIAL_CAPACITY];
+		private int[] applyCount = new int[INITIAL_CAPACITY];
+		private int[] ovwApplyCount = new int[INITIAL_CAPACITY];
+		private int[] customerId = new int[INITIAL_CAPACITY];
+		private int[] coId = new int[INITIAL_CAPACITY];
+		private long[] lbcDate = new long[INITIAL_CAPACITY];
+		private String[] prgcode = new String[INITIAL_CAPACITY];
+		private int[] tmCode = new int[INITIAL_CAPACITY];
+		private int[] offerSnCode = new int[INITIAL_CAPACITY];
+		private long[] offerValidFromDate = new long[INITIAL_CAPACITY];
+		private char[] offerStatus = new char[INITIAL_CAPACITY];
+		private float[] offerPrice = new float[INITIAL_CAPACITY];
+		private int[] aloSnCode = new int[INITIAL_CAPACITY];
+		private long[] aloValidFromDate = new long[INITIAL_CAPACITY];
+		private char[] aloStatus = new char[INITIAL_CAPACITY];
+		private float[] aloPrice = new float[INITIAL_CAPACITY];
+
+		private int contractCount;
+		private int[] contractCoId = new int[INITIAL_CAPACITY];
+		private int[] contractStart = new int[INITIAL_CAPACITY + 1];
+
+		private Builder(int requestId) {
+			this.requestId = requestId;
+		}
+
+		public Builder add(long assignId, long assignDate, int discSncode, int discId, int applyCount,
+				int ovwApplyCount, int customerId, int coId, long lbcDate, String prgcode, int tmCode,
+				int offerSnCode, long offerValidFromDate, char offerStatus, float offerPrice, int aloSnCode,
+				long aloValidFromDate, char aloStatus, float aloPrice) {
+			if (size == this.assignId.length) {
+				grow();
+			}
+			if (contractCount == 0 || contractCoId[contractCount - 1] != coId) {
+				startContract(coId);
+			}
+			int i = size++;
+			this.assignId[i] = assignId;
+			this.assignDate[i] = assignDate;
+			this.discSncode[i] = discSncode;
+			this.discId[i] = discId;
+			this.applyCount[i] = applyCount;
+			this.ovwApplyCount[i] = ovwApplyCount;
+			this.customerId[i] = customerId;
+			this.coId[i] = coId;
+			this.lbcDate[i] = lbcDate;
+			this.prgcode[i] = prgcode;
+			this.tmCode[i] = tmCode;
+			this.offerSnCode[i] = offerSnCode;
+			this.offerValidFromDate[i] = offerValidFromDate;
+			this.offerStatus[i] = offerStatus;
+			this.offerPrice[i] = offerPrice;
+			this.aloSnCode[i] = aloSnCode;
+			this.aloValidFromDate[i] = aloValidFromDate;
+			this.aloStatus[i] = aloStatus;
+			this.aloPrice[i] = aloPrice;
+			return this;
+		}
+
+		public DiscountColumns build() {
+			return new DiscountColumns(this);
+		}
+
+		private void startContract(int coId) {
+			if (contractCount > 0 && coId < contractCoId[contractCount - 1]) {
+				throw new IllegalStateException("Rows must be ordered by co_id; got " + coId + " after "
+						+ contractCoId[contractCount - 1]);
+			}
+			if (contractCount + 1 == contractCoId.length) {
+				contractCoId = Arrays.copyOf(contractCoId, contractCoId.length * 2);
+				contractStart = Arrays.copyOf(contractStart, contractCoId.length + 1);
+			}
+			contractCoId[contractCount] = coId;
+			contractStart[contractCount] = size;
+			contractCount++;
+		}
+
+		private void grow() {
+			int capacity = assignId.length * 2;
+			assignId = Arrays.copyOf(assignId, capacity);
+			assignDate = Arrays.copyOf(assignDate, capacity);
+			discSncode = Arrays.copyOf(discSncode, capacity);
+			discId = Arrays.copyOf(discId, capacity);
+			applyCount = Arrays.copyOf(applyCount, capacity);
+			ovwApplyCount = Arrays.copyOf(ovwApplyCount, capacity);
+			customerId = Arrays.copyOf(customerId, capacity);
+			coId = Arrays.copyOf(coId, capacity);
+			lbcDate = Arrays.copyOf(lbcDate, capacity);
+			prgcode = Arrays.copyOf(prgcode, capacity);
+			tmCode = Arrays.copyOf(tmCode, capacity);
+			offerSnCode = Arrays.copyOf(offerSnCode, capacity);
+			offerValidFromDate = Arrays.copyOf(offerValidFromDate, capacity);
+			offerStatus = Arrays.copyOf(offerStatus, capacity);
+			offerPrice = Arrays.copyOf(offerPrice, capacity);
+			aloSnCode = Arrays.copyOf(aloSnCode, capacity);
+			aloValidFromDate = Arrays.copyOf(aloValidFromDate, capacity);
+			aloStatus = Arrays.copyOf(aloStatus, capacity);
+			aloPrice = Arrays.copyOf(aloPrice, capacity);
+		}
+	}
+}
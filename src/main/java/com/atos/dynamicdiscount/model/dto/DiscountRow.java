@@ -0,0 +1,66 @@
+package com.atos.dynamicdiscount.model.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact, primitive form of one row of the discount enrichment query, decoded straight from
+ * the ResultSet by {@code DiscountRowDecoder}. Dates are local epoch seconds (the DB wall-clock
+ * time read as UTC, so no time-zone conversion is involved); absent values use the NULL_*
+ * sentinels. Same columns as {@link DynDiscAssignDTO}.
+ */
+public record DiscountRow(
+		int requestId,
+		long assignId,
+		long assignDate,
+		int discSncode,
+		int discId,
+		int applyCount,
+		int ovwApplyCount,
+		int customerId,
+		int coId,
+		long lbcDate,
+		String prgcode,
+		int tmCode,
+		int offerSnCode,
+		long offerValidFromDate,
+		char offerStatus,
+		float offerPrice,
+		int aloSnCode,
+		long aloValidFromDate,
+		char aloStatus,
+		float aloPrice) {
+
+	public static final int NULL_INT = Integer.MIN_VALUE;
+	public static final long NULL_DATE = Long.MIN_VALUE;
+	public static final char NULL_CHAR = '\0';
+	public static final float NULL_PRICE = Float.NaN;
+
+	public static long toEpochSecond(LocalDateTime dateTime) {
+		return dateTime == null ? NULL_DATE : dateTime.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	public static LocalDateTime toLocalDateTime(long epochSecond) {
+		return epochSecond == NULL_DATE ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+	}
+
+	public boolean hasOvwApplyCount() {
+		return ovwApplyCount != NULL_INT;
+	}
+
+	public boolean hasOfferPrice() {
+		return !Float.isNaN(offerPrice);
+	}
+
+	public boolean hasAloSnCode() {
+		return aloSnCode != NULL_INT;
+	}
+
+	public boolean hasAloStatus() {
+		return aloStatus != NULL_CHAR;
+	}
+
+	public boolean hasAloPrice() {
+		return !Float.isNaN(aloPrice);
+	}
+}
@@ -51,10 +51,21 @@ public class DynDiscContract {
 	@Column(name = "remark", length = 255)
 	private String remark;
 
+	// Status values allowed in DYN_DISC_CONTRACT; 'G' = grant queued in DYN_DISC_GRANT_OUTBOX
+	private static final String STATUSES = "IPFSG";
+
 	@PrePersist
 	@PreUpdate
 	private void validateStatus() {
-		if (!"IPFS".contains(status)) {
+		checkStatus(status);
+	}
+
+	/**
+	 * Rejects a status the table does not allow. Native and JDBC status updates bypass the
+	 * entity callbacks, so they call it before writing.
+	 */
+	public static void checkStatus(String status) {
+		if (status == null || status.length() != 1 || STATUSES.indexOf(status.charAt(0)) < 0) {
 			throw new IllegalArgumentException("Invalid status value: " + status);
 		}
 	}
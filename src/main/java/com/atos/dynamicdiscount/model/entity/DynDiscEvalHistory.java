@@ -2,15 +2,25 @@ package com.atos.dynamicdiscount.model.entity;
 
 import java.time.LocalDateTime;
 
+import org.springframework.data.domain.Persistable;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 
 @Entity
@@ -21,7 +31,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 
-public class DynDiscEvalHistory  {
+public class DynDiscEvalHistory implements Persistable<DynDiscEvalHistoryId> {
 
 	@Id
 	@Column(name = "REQUEST_ID")
@@ -91,4 +101,28 @@ public class DynDiscEvalHistory  {
 	@Column(name = "username")
 	private String username;
 
+	// History rows are written once per request and assignment, so save() inserts without a lookup
+	@Transient
+	@Builder.Default
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private boolean newEntity = true;
+
+	@Override
+	public DynDiscEvalHistoryId getId() {
+		return new DynDiscEvalHistoryId(requestId, assignId);
+	}
+
+	@Override
+	public boolean isNew() {
+		return newEntity;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		newEntity = false;
+	}
 }
@@ -1,14 +1,24 @@
 package com.atos.dynamicdiscount.model.entity;
 
+import org.springframework.data.domain.Persistable;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.IdClass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 
 @Entity
@@ -19,7 +29,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 
-public class DynDiscGrantHistory {
+public class DynDiscGrantHistory implements Persistable<DynDiscGrantHistoryId> {
 
 	@Id
 	@Column(name = "REQUEST_ID")
@@ -67,4 +77,29 @@ public class DynDiscGrantHistory {
 	
 	@Column(name = "username")
 	private String username;
+
+	// History rows are written once per request and assignment, so save() inserts without a lookup
+	@Transient
+	@Builder.Default
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private boolean newEntity = true;
+
+	@Override
+	public DynDiscGrantHistoryId getId() {
+		return new DynDiscGrantHistoryId(requestId, assignId);
+	}
+
+	@Override
+	public boolean isNew() {
+		return newEntity;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		newEntity = false;
+	}
 }
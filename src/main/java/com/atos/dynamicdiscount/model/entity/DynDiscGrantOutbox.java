@@ -0,0 +1,63 @@
+package com.atos.dynamicdiscount.model.entity;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pending OCC grant written by the evaluation, in the same transaction as its histories,
+ * and drained by the grant workers in outbox mode. Until it is granted, its contract has the
+ * status 'G' (grant pending) in DYN_DISC_CONTRACT.
+ * <p>
+ * Schema change for {@code occ.grant.mode=outbox}, to apply before enabling it:
+ * <pre>
+ * CREATE TABLE DYN_DISC_GRANT_OUTBOX (
+ *     REQUEST_ID     NUMBER  NOT NULL,
+ *     ASSIGN_ID      NUMBER  NOT NULL,
+ *     CUSTOMER_ID    NUMBER  NOT NULL,
+ *     CO_ID          NUMBER  NOT NULL,
+ *     STATUS         CHAR(1) DEFAULT 'N' NOT NULL CONSTRAINT CK_DYN_DISC_GRANT_OUTBOX_STATUS CHECK (STATUS IN ('N', 'P')),
+ *     ENTRY_DATE     DATE    DEFAULT SYSDATE NOT NULL,
+ *     PROCESSED_DATE DATE,
+ *     CONSTRAINT PK_DYN_DISC_GRANT_OUTBOX PRIMARY KEY (REQUEST_ID, ASSIGN_ID)
+ * );
+ * -- Pending grants of a request, read by the grant workers
+ * CREATE INDEX IX_DYN_DISC_GRANT_OUTBOX_PENDING ON DYN_DISC_GRANT_OUTBOX (REQUEST_ID, STATUS);
+ * </pre>
+ * A check constraint on DYN_DISC_CONTRACT.STATUS, if any, must also allow 'G'.
+ */
+@Entity
+@Table(name = "DYN_DISC_GRANT_OUTBOX")
+@IdClass(DynDiscGrantOutboxId.class)
+@Data
+@NoArgsConstructor
+public class DynDiscGrantOutbox {
+
+	@Id
+	@Column(name = "request_id")
+	private Integer requestId;
+
+	@Id
+	@Column(name = "assign_id")
+	private Long assignId;
+
+	@Column(name = "customer_id")
+	private Integer customerId;
+
+	@Column(name = "co_id")
+	private Integer coId;
+
+	@Column(name = "status", nullable = false, length = 1)
+	private String status; // 'N' new, 'P' processed
+
+	@Column(name = "entry_date")
+	private LocalDateTime entryDate;
+
+	@Column(name = "processed_date")
+	private LocalDateTime processedDate;
+}
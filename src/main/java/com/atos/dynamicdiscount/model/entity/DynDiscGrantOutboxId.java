@@ -0,0 +1,14 @@
+package com.atos.dynamicdiscount.model.entity;
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DynDiscGrantOutboxId implements Serializable {
+    private Integer requestId;
+    private Long assignId;
+}
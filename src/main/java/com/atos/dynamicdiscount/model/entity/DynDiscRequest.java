@@ -2,12 +2,17 @@ package com.atos.dynamicdiscount.model.entity;
 
 import java.time.LocalDateTime;
 
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name = "DYN_DISC_REQUEST")
@@ -37,4 +42,10 @@ public class DynDiscRequest {
 	@Column(name = "stop_process_flag", insertable = false)
 	private String stopProcessFlag;
 
+	// Configuration the run evaluates with, pinned when processing starts; not persisted
+	@Transient
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private ConfigSnapshot config;
+
 }
@@ -0,0 +1,35 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads a change signature of every configuration table in one round trip: its row count and
+ * highest ORA_ROWSCN. An insert or update raises the SCN and a delete lowers the count, so a table
+ * whose signature is unchanged since the last load does not need to be read again.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConfigChangeDetector {
+
+	private static final String SIGNATURE_QUERY = Arrays.stream(ConfigTable.values())
+			.map(table -> "SELECT '" + table.name() + "', COUNT(*) || ':' || NVL(MAX(ORA_ROWSCN), 0) FROM "
+					+ table.getTableName())
+			.collect(Collectors.joining(" UNION ALL "));
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public Map<ConfigTable, String> readSignatures() {
+		Map<ConfigTable, String> signatures = new EnumMap<>(ConfigTable.class);
+		jdbcTemplate.query(SIGNATURE_QUERY,
+				rs -> { signatures.put(ConfigTable.valueOf(rs.getString(1)), rs.getString(2)); });
+		return signatures;
+	}
+}
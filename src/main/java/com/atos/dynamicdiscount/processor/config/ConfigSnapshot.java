@@ -0,0 +1,97 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroupId;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscType;
+
+import lombok.Getter;
+
+/**
+ * One complete load of the discount configuration with the indexes derived from it. It is built
+ * aside and published as a whole by {@link DynDiscConfigurations}, and a request keeps the
+ * snapshot it started with, so a refresh never shows a run a mix of old and new data.
+ * <p>
+ * The maps and indexes are unmodifiable, but the entities in them are the detached rows as loaded,
+ * with their setters, and are shared by every run and later snapshot that reuses them: they are
+ * read-only by convention. Never change one in place; a changed row needs a reload.
+ */
+@Getter
+public final class ConfigSnapshot {
+
+	private final long version; // Increases with every load
+	private final LocalDateTime loadedAt;
+	private final Map<ConfigTable, String> signatures; // Change signature of each table as loaded; empty when unknown
+
+	private final Map<Integer, DynDiscType> dynDiscTypeMap; // Maps type ID to DynDiscType
+	private final Map<Integer, DynDiscConf> dynDiscConfMap; // Maps discount ID to DynDiscConf
+	private final Map<Integer, List<DynDiscOffer>> dynDiscOfferMap; // Maps discount ID to a list of DynDiscOffers
+	private final OfferIndex offerIndex; // Best-offer lookup by discount ID and tmcode/sncode
+	private final Map<DynDiscPriceGroupId, DynDiscPriceGroup> dynDiscPriceGroupMap; // Maps price group ID to DynDiscPriceGroup
+	private final PriceGroupIndex priceGroupIndex; // Restricted/prohibited price groups by discount ID
+	private final Map<DynDiscSpecialMonthId, DynDiscSpecialMonth> dynDiscSpecialMonthMap; // Maps special month ID to DynDiscSpecialMonth
+	private final Map<DynDiscFreeMonthId, DynDiscFreeMonth> dynDiscFreeMonthMap; // Maps free month ID to DynDiscFreeMonth
+	private final Map<Integer, MonthSchedule> monthScheduleMap; // Maps offer ID to its free/special month schedule
+
+	private ConfigSnapshot(long version, Map<ConfigTable, String> signatures, List<DynDiscType> types,
+			List<DynDiscConf> confs, List<DynDiscOffer> offers, List<DynDiscPriceGroup> priceGroups,
+			List<DynDiscSpecialMonth> specialMonths, List<DynDiscFreeMonth> freeMonths) {
+		this.version = version;
+		this.loadedAt = LocalDateTime.now();
+		this.signatures = Collections.unmodifiableMap(signatures);
+		this.dynDiscOfferMap = Collections.unmodifiableMap(groupOffersByDiscId(offers));
+		this.offerIndex = OfferIndex.build(getOffers());
+		this.dynDiscConfMap = mapEntities(confs, DynDiscConf::getDiscId);
+		this.dynDiscTypeMap = mapEntities(types, DynDiscType::getTypeId);
+		this.dynDiscPriceGroupMap = mapEntities(priceGroups, DynDiscPriceGroup::getId);
+		this.priceGroupIndex = PriceGroupIndex.build(dynDiscPriceGroupMap.values());
+		this.dynDiscSpecialMonthMap = mapEntities(specialMonths, DynDiscSpecialMonth::getId);
+		this.dynDiscFreeMonthMap = mapEntities(freeMonths, DynDiscFreeMonth::getId);
+		this.monthScheduleMap = MonthSchedule.build(dynDiscFreeMonthMap.values(), dynDiscSpecialMonthMap.values());
+	}
+
+	/**
+	 * Builds a snapshot, with all of its indexes, from the rows of the configuration tables.
+	 */
+	public static ConfigSnapshot build(long version, Map<ConfigTable, String> signatures, List<DynDiscType> types,
+			List<DynDiscConf> confs, List<DynDiscOffer> offers, List<DynDiscPriceGroup> priceGroups,
+			List<DynDiscSpecialMonth> specialMonths, List<DynDiscFreeMonth> freeMonths) {
+		return new ConfigSnapshot(version, signatures, types, confs, offers, priceGroups, specialMonths, freeMonths);
+	}
+
+	/**
+	 * All offers, in their per-discount order, to rebuild a snapshot without reading them again.
+	 */
+	public List<DynDiscOffer> getOffers() {
+		return dynDiscOfferMap.values().stream().flatMap(List::stream).toList();
+	}
+
+	// Free/special month schedule of an offer; empty when it has none
+	public MonthSchedule getMonthSchedule(Integer offerId) {
+		return monthScheduleMap.getOrDefault(offerId, MonthSchedule.EMPTY);
+	}
+
+	private static <T, K> Map<K, T> mapEntities(List<T> entities, Function<T, K> keyMapper) {
+		return Collections.unmodifiableMap(entities.stream()
+				.collect(Collectors.toMap(keyMapper, Function.identity())));
+	}
+
+	// Groups the offers by discount ID; offers without one are ignored
+	private static Map<Integer, List<DynDiscOffer>> groupOffersByDiscId(List<DynDiscOffer> offers) {
+		return offers.stream()
+				.filter(offer -> offer.getDiscId() != null)
+				.collect(Collectors.groupingBy(DynDiscOffer::getDiscId));
+	}
+}
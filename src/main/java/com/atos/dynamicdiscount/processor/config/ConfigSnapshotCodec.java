@@ -0,0 +1,303 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroupId;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscType;
+
+/**
+ * Binary file format of a {@link ConfigSnapshot}: a magic number and format version, the snapshot
+ * version and table signatures, then the rows of each configuration table. The file is read
+ * through a memory mapping and the indexes are rebuilt from the rows, which takes milliseconds,
+ * so the service can start without waiting for the database and tools can run without one.
+ */
+public final class ConfigSnapshotCodec {
+
+	private static final int MAGIC = 0x44444353; // "DDCS"
+	private static final int FORMAT_VERSION = 1;
+
+	private ConfigSnapshotCodec() {
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file next to the target and moves it into place, so
+	 * readers never see a partly written file.
+	 */
+	public static void write(ConfigSnapshot snapshot, Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream os = Files.newOutputStream(tmp);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+				writeSnapshot(snapshot, out);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #write}; fails on a foreign or newer file format.
+	 */
+	public static ConfigSnapshot read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (in.remaining() < 8 || in.getInt() != MAGIC) {
+				throw new IOException("Not a configuration snapshot file: " + file);
+			}
+			int format = in.getInt();
+			if (format != FORMAT_VERSION) {
+				throw new IOException("Unsupported configuration snapshot format " + format + ": " + file);
+			}
+			try {
+				return readSnapshot(in);
+			} catch (RuntimeException e) {
+				throw new IOException("Corrupt configuration snapshot file: " + file, e);
+			}
+		}
+	}
+
+	private static void writeSnapshot(ConfigSnapshot snapshot, DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(snapshot.getVersion());
+		out.writeInt(snapshot.getSignatures().size());
+		for (Map.Entry<ConfigTable, String> signature : snapshot.getSignatures().entrySet()) {
+			writeString(out, signature.getKey().name());
+			writeString(out, signature.getValue());
+		}
+
+		out.writeInt(snapshot.getDynDiscTypeMap().size());
+		for (DynDiscType type : snapshot.getDynDiscTypeMap().values()) {
+			writeInteger(out, type.getTypeId());
+			writeString(out, type.getDescription());
+		}
+
+		out.writeInt(snapshot.getDynDiscConfMap().size());
+		for (DynDiscConf conf : snapshot.getDynDiscConfMap().values()) {
+			writeInteger(out, conf.getDiscId());
+			writeString(out, conf.getName());
+			writeString(out, conf.getDescription());
+			writeInteger(out, conf.getDiscSncode());
+			writeInteger(out, conf.getDuration());
+			writeInteger(out, conf.getOccSncode());
+			writeString(out, conf.getOccGlcode());
+			writeString(out, conf.getOccRemark());
+			writeDateTime(out, conf.getValidFrom());
+			writeDateTime(out, conf.getValidTo());
+			writeBoolean(out, conf.getAloDiscInd());
+			writeBoolean(out, conf.getSuspInd());
+			writeDateTime(out, conf.getCreatedAt());
+			writeString(out, conf.getUsername());
+		}
+
+		List<DynDiscOffer> offers = snapshot.getOffers();
+		out.writeInt(offers.size());
+		for (DynDiscOffer offer : offers) {
+			writeInteger(out, offer.getOfferId());
+			writeInteger(out, offer.getDiscId());
+			writeInteger(out, offer.getTmcode());
+			writeInteger(out, offer.getSncode());
+			writeFloat(out, offer.getOfferDiscAmt());
+			writeFloat(out, offer.getAloDiscAmt());
+			writeDateTime(out, offer.getEligStartDate());
+			writeDateTime(out, offer.getEligEndDate());
+			writeBoolean(out, offer.getFreeMonthInd());
+			writeBoolean(out, offer.getSpecialMonthInd());
+		}
+
+		out.writeInt(snapshot.getDynDiscPriceGroupMap().size());
+		for (DynDiscPriceGroup priceGroup : snapshot.getDynDiscPriceGroupMap().values()) {
+			writeInteger(out, priceGroup.getId().getDiscId());
+			writeString(out, priceGroup.getId().getPrgcode());
+			out.writeBoolean(priceGroup.isRestrictInd());
+			out.writeBoolean(priceGroup.isProhibitInd());
+		}
+
+		out.writeInt(snapshot.getDynDiscSpecialMonthMap().size());
+		for (DynDiscSpecialMonth month : snapshot.getDynDiscSpecialMonthMap().values()) {
+			writeInteger(out, month.getId().getOfferId());
+			writeInteger(out, month.getId().getMonthNo());
+			out.writeFloat(month.getOfferDiscAmt());
+			out.writeFloat(month.getAloDiscAmt());
+		}
+
+		out.writeInt(snapshot.getDynDiscFreeMonthMap().size());
+		for (DynDiscFreeMonth month : snapshot.getDynDiscFreeMonthMap().values()) {
+			writeInteger(out, month.getId().getOfferId());
+			writeInteger(out, month.getId().getMonthNo());
+		}
+	}
+
+	private static ConfigSnapshot readSnapshot(ByteBuffer in) {
+		long version = in.getLong();
+		Map<ConfigTable, String> signatures = new EnumMap<>(ConfigTable.class);
+		for (int i = in.getInt(); i > 0; i--) {
+			signatures.put(ConfigTable.valueOf(readString(in)), readString(in));
+		}
+
+		List<DynDiscType> types = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscType type = new DynDiscType();
+			type.setTypeId(readInteger(in));
+			type.setDescription(readString(in));
+			types.add(type);
+		}
+
+		List<DynDiscConf> confs = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscConf conf = new DynDiscConf();
+			conf.setDiscId(readInteger(in));
+			conf.setName(readString(in));
+			conf.setDescription(readString(in));
+			conf.setDiscSncode(readInteger(in));
+			conf.setDuration(readInteger(in));
+			conf.setOccSncode(readInteger(in));
+			conf.setOccGlcode(readString(in));
+			conf.setOccRemark(readString(in));
+			conf.setValidFrom(readDateTime(in));
+			conf.setValidTo(readDateTime(in));
+			conf.setAloDiscInd(readBoolean(in));
+			conf.setSuspInd(readBoolean(in));
+			conf.setCreatedAt(readDateTime(in));
+			conf.setUsername(readString(in));
+			confs.add(conf);
+		}
+
+		List<DynDiscOffer> offers = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscOffer offer = new DynDiscOffer();
+			offer.setOfferId(readInteger(in));
+			offer.setDiscId(readInteger(in));
+			offer.setTmcode(readInteger(in));
+			offer.setSncode(readInteger(in));
+			offer.setOfferDiscAmt(readFloat(in));
+			offer.setAloDiscAmt(readFloat(in));
+			offer.setEligStartDate(readDateTime(in));
+			offer.setEligEndDate(readDateTime(in));
+			offer.setFreeMonthInd(readBoolean(in));
+			offer.setSpecialMonthInd(readBoolean(in));
+			offers.add(offer);
+		}
+
+		List<DynDiscPriceGroup> priceGroups = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscPriceGroup priceGroup = new DynDiscPriceGroup();
+			priceGroup.setId(new DynDiscPriceGroupId(readInteger(in), readString(in)));
+			priceGroup.setRestrictInd(in.get() != 0);
+			priceGroup.setProhibitInd(in.get() != 0);
+			priceGroups.add(priceGroup);
+		}
+
+		List<DynDiscSpecialMonth> specialMonths = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscSpecialMonth month = new DynDiscSpecialMonth();
+			month.setId(new DynDiscSpecialMonthId(readInteger(in), readInteger(in)));
+			month.setOfferDiscAmt(in.getFloat());
+			month.setAloDiscAmt(in.getFloat());
+			specialMonths.add(month);
+		}
+
+		List<DynDiscFreeMonth> freeMonths = new ArrayList<>();
+		for (int i = in.getInt(); i > 0; i--) {
+			DynDiscFreeMonth month = new DynDiscFreeMonth();
+			month.setId(new DynDiscFreeMonthId(readInteger(in), readInteger(in)));
+			freeMonths.add(month);
+		}
+
+		return ConfigSnapshot.build(version, signatures, types, confs, offers, priceGroups, specialMonths, freeMonths);
+	}
+
+	// Nullable values are written as a presence byte followed by the value
+
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static Integer readInteger(ByteBuffer in) {
+		return in.get() != 0 ? in.getInt() : null;
+	}
+
+	private static void writeFloat(DataOutputStream out, Float value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeFloat(value);
+		}
+	}
+
+	private static Float readFloat(ByteBuffer in) {
+		return in.get() != 0 ? in.getFloat() : null;
+	}
+
+	// Null, false and true as -1, 0 and 1
+	private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+		out.writeByte(value == null ? -1 : value ? 1 : 0);
+	}
+
+	private static Boolean readBoolean(ByteBuffer in) {
+		byte value = in.get();
+		return value < 0 ? null : value != 0;
+	}
+
+	private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+			out.writeInt(value.getNano());
+		}
+	}
+
+	private static LocalDateTime readDateTime(ByteBuffer in) {
+		return in.get() != 0 ? LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC) : null;
+	}
+
+	// UTF-8 bytes prefixed with their length, -1 for null
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,24 @@
+package com.atos.dynamicdiscount.processor.config;
+
+/**
+ * Configuration tables loaded into a {@link ConfigSnapshot}, each reloaded only when it changed.
+ */
+public enum ConfigTable {
+
+	TYPE("DYN_DISC_TYPE"),
+	CONF("DYN_DISC_CONF"),
+	OFFER("DYN_DISC_OFFER"),
+	PRICE_GROUP("DYN_DISC_PRICE_GROUP"),
+	SPECIAL_MONTH("DYN_DISC_SPECIAL_MONTH"),
+	FREE_MONTH("DYN_DISC_FREE_MONTH");
+
+	private final String tableName;
+
+	ConfigTable(String tableName) {
+		this.tableName = tableName;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+}
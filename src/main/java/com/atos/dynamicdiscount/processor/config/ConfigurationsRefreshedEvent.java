@@ -0,0 +1,8 @@
+package com.atos.dynamicdiscount.processor.config;
+
+/**
+ * Published once {@link DynDiscConfigurations} has reloaded its data, so anything derived from
+ * the previous configuration can be dropped.
+ */
+public record ConfigurationsRefreshedEvent() {
+}
@@ -0,0 +1,74 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Gives access to the HikariCP pool(s) behind the application data source, whether it is the
+ * single shared pool or one pool per {@link DataSourceRole}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConnectionPools {
+
+	private final DataSource dataSource;
+
+	/**
+	 * Pool serving the given role; the shared pool when bulkheads are disabled.
+	 */
+	public HikariDataSource pool(DataSourceRole role) {
+		if (dataSource instanceof RoleRoutingDataSource routing) {
+			return routing.getPools().get(role);
+		}
+		return dataSource instanceof HikariDataSource hikari ? hikari : null;
+	}
+
+	/**
+	 * Current saturation of every pool.
+	 */
+	public List<PoolStatus> getStatus() {
+		List<PoolStatus> status = new ArrayList<>();
+		if (dataSource instanceof RoleRoutingDataSource routing) {
+			routing.getPools().forEach((role, pool) -> addStatus(status, role.name(), pool));
+		} else if (dataSource instanceof HikariDataSource hikari) {
+			addStatus(status, "SHARED", hikari);
+		}
+		return status;
+	}
+
+	/**
+	 * Threads currently waiting for a connection of the given role's pool.
+	 */
+	public int threadsAwaitingConnection(DataSourceRole role) {
+		HikariDataSource pool = pool(role);
+		return pool != null && pool.getHikariPoolMXBean() != null
+				? pool.getHikariPoolMXBean().getThreadsAwaitingConnection()
+				: 0;
+	}
+
+	private void addStatus(List<PoolStatus> status, String role, HikariDataSource pool) {
+		HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+		if (mxBean == null) {
+			return; // Not started yet
+		}
+		status.add(PoolStatus.builder()
+				.role(role)
+				.poolName(pool.getPoolName())
+				.activeConnections(mxBean.getActiveConnections())
+				.idleConnections(mxBean.getIdleConnections())
+				.totalConnections(mxBean.getTotalConnections())
+				.threadsAwaitingConnection(mxBean.getThreadsAwaitingConnection())
+				.maxConnections(pool.getMaximumPoolSize())
+				.utilization((double) mxBean.getActiveConnections() / pool.getMaximumPoolSize())
+				.build());
+	}
+}
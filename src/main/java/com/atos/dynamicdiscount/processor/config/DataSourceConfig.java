@@ -1,17 +1,35 @@
 package com.atos.dynamicdiscount.processor.config;
 
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
 @Configuration
+@RequiredArgsConstructor
+@Slf4j
 public class DataSourceConfig {
 
+    private static final String POOL_NAME = "DynamicDiscountHikariPool";
+
+    private final Environment environment;
+
+    // One pool per DataSourceRole instead of a single shared pool
+    @Value("${spring.datasource.pools.enabled:false}")
+    private boolean poolsEnabled;
+
     // Database connection properties
     @Value("${spring.datasource.url}")
     private String dbUrl;
@@ -52,6 +70,27 @@ public class DataSourceConfig {
 
     @Bean
     public DataSource dataSource() {
+        if (!poolsEnabled) {
+            return createPool(POOL_NAME, maximumPoolSize, minimumIdle, connectionTimeout, socketTimeout);
+        }
+
+        // Separate, separately sized pools per role; unset values fall back to the shared pool settings
+        Map<DataSourceRole, HikariDataSource> pools = new EnumMap<>(DataSourceRole.class);
+        for (DataSourceRole role : DataSourceRole.values()) {
+            String prefix = "spring.datasource.pools." + role.name().toLowerCase(Locale.ROOT) + ".";
+            int maxSize = environment.getProperty(prefix + "maximum-pool-size", Integer.class, maximumPoolSize);
+            int minIdle = environment.getProperty(prefix + "minimum-idle", Integer.class, Math.min(minimumIdle, maxSize));
+            long timeout = environment.getProperty(prefix + "connection-timeout", Long.class, connectionTimeout);
+            long socket = environment.getProperty(prefix + "socket-timeout", Long.class, socketTimeout);
+            String poolName = POOL_NAME + "-" + role.name();
+            pools.put(role, createPool(poolName, maxSize, minIdle, timeout, socket));
+            log.info("Connection pool '{}': max {} connections, min idle {}, connection timeout {} ms, socket timeout {} ms.",
+                    poolName, maxSize, minIdle, timeout, socket);
+        }
+        return new RoleRoutingDataSource(pools);
+    }
+
+    private HikariDataSource createPool(String poolName, int maxSize, int minIdle, long timeout, long socket) {
         HikariConfig hikariConfig = new HikariConfig();
         
         // Basic database connection setup
@@ -61,12 +100,12 @@ public class DataSourceConfig {
         hikariConfig.setDriverClassName(driverClassName);
 
         // HikariCP pool settings
-        hikariConfig.setMinimumIdle(minimumIdle);
-        hikariConfig.setMaximumPoolSize(maximumPoolSize);
+        hikariConfig.setMinimumIdle(minIdle);
+        hikariConfig.setMaximumPoolSize(maxSize);
         hikariConfig.setIdleTimeout(idleTimeout);
         hikariConfig.setMaxLifetime(maxLifetime);
-        hikariConfig.setConnectionTimeout(connectionTimeout);
-        hikariConfig.setPoolName("DynamicDiscountHikariPool");
+        hikariConfig.setConnectionTimeout(timeout);
+        hikariConfig.setPoolName(poolName);
         hikariConfig.setAutoCommit(false);
 
         // Connection validation setup (Oracle optimized)
@@ -76,7 +115,7 @@ public class DataSourceConfig {
 
 
         // TCP-level protection
-        hikariConfig.addDataSourceProperty("socketTimeout", socketTimeout);
+        hikariConfig.addDataSourceProperty("socketTimeout", socket);
 
         // Optimizations for Oracle Database
         hikariConfig.addDataSourceProperty("oracle.jdbc.implicitStatementCacheSize", "100");
@@ -0,0 +1,48 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Workload a connection is borrowed for. With pool bulkheads enabled, each role gets its own
+ * HikariCP pool; the role is bound to the current thread while the work runs.
+ * A connection is picked when a transaction (or a non-transactional statement) starts, so
+ * everything inside one transaction uses the pool of the role it started with.
+ */
+public enum DataSourceRole {
+
+	ENRICHMENT, // Package loads: enrichment CTEs and contract reads
+	WRITE, // Contract pipeline: lifecycle writes and inline OCC grants, which share the contract transaction
+	GRANT, // Outbox grant workers: BSCS procedure calls; only used with occ.grant.mode=outbox
+	LISTENER; // GMD request listener
+
+	private static final ThreadLocal<DataSourceRole> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Role of the current thread; work without an explicit role counts as {@link #WRITE}.
+	 */
+	public static DataSourceRole current() {
+		DataSourceRole role = CURRENT.get();
+		return role != null ? role : WRITE;
+	}
+
+	public static void runAs(DataSourceRole role, Runnable work) {
+		callAs(role, () -> {
+			work.run();
+			return null;
+		});
+	}
+
+	public static <T> T callAs(DataSourceRole role, Supplier<T> work) {
+		DataSourceRole previous = CURRENT.get();
+		CURRENT.set(role);
+		try {
+			return work.get();
+		} finally {
+			if (previous != null) {
+				CURRENT.set(previous);
+			} else {
+				CURRENT.remove();
+			}
+		}
+	}
+}
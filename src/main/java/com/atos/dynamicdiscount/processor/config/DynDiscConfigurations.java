@@ -1,21 +1,23 @@
 package com.atos.dynamicdiscount.processor.config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import com.atos.dynamicdiscount.model.entity.DynDiscConf;
-import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
-import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
-import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
-import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
-import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroupId;
-import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
-import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
-import com.atos.dynamicdiscount.model.entity.DynDiscType;
 import com.atos.dynamicdiscount.repository.DynDiscConfRepository;
 import com.atos.dynamicdiscount.repository.DynDiscFreeMonthRepository;
 import com.atos.dynamicdiscount.repository.DynDiscOfferRepository;
@@ -24,13 +26,18 @@ import com.atos.dynamicdiscount.repository.DynDiscSpecialMonthRepository;
 import com.atos.dynamicdiscount.repository.DynDiscTypeRepository;
 
 import jakarta.annotation.PostConstruct;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Holds the current {@link ConfigSnapshot}. A load builds a complete new snapshot aside and
+ * publishes it with a single reference swap, so readers never lock and never see a partial load.
+ * A refresh only reads the tables whose change signature moved since the current snapshot and
+ * reuses the rows of the others; when nothing changed, the current snapshot stays. With a
+ * snapshot file configured, every load is saved to it and startup reads it instead of the tables.
+ */
 @Service
 @RequiredArgsConstructor
-@Getter
 @Slf4j
 public class DynDiscConfigurations {
 
@@ -41,54 +48,145 @@ public class DynDiscConfigurations {
 	private final DynDiscOfferRepository dynDiscOfferRepository;
 	private final DynDiscSpecialMonthRepository dynDiscSpecialMonthRepository;
 	private final DynDiscFreeMonthRepository dynDiscFreeMonthRepository;
-	
-	
-	// Maps for storing preloaded configuration data
-    private Map<Integer, DynDiscType> dynDiscTypeMap; // Maps type ID to DynDiscType
-    private Map<Integer, DynDiscConf> dynDiscConfMap; // Maps discount ID to DynDiscConf
-    private Map<Integer, List<DynDiscOffer>> dynDiscOfferMap; // Maps discount ID to a list of DynDiscOffers
-    private Map<DynDiscPriceGroupId, DynDiscPriceGroup> DynDiscPriceGroupMap; // Maps price group ID to DynDiscPriceGroup
-    private Map<DynDiscSpecialMonthId, DynDiscSpecialMonth> dynDiscSpecialMonthMap; // Maps special month ID to DynDiscSpecialMonth
-    private Map<DynDiscFreeMonthId, DynDiscFreeMonth> dynDiscFreeMonthMap; // Maps free month ID to DynDiscFreeMonth
-	
-	
+	private final ConfigChangeDetector changeDetector;
+	private final ApplicationEventPublisher eventPublisher;
+
+	// Checks for configuration changes in the background; requests then start without a check of their own
+	@Value("${config.refresh.poll.enabled:false}")
+	private boolean pollEnabled;
+
+	// Binary snapshot file to start from and save every load to (empty = disabled)
+	@Value("${config.snapshot.file:}")
+	private String snapshotFile;
+
+	// Latest loaded configuration; requests pin the snapshot current when they start
+	private final AtomicReference<ConfigSnapshot> current = new AtomicReference<>();
 
 	@PostConstruct
-	public void loadConfigurations() {
-		log.info("Loading configuration data...");
-		dynDiscOfferMap =buildDiscIdToOffersMap();
-		dynDiscConfMap = mapEntities(dynDiscConfRepository.findAll(), DynDiscConf::getDiscId);
-		dynDiscTypeMap = mapEntities(dynDiscTypeRepository.findAll(), DynDiscType::getTypeId);
-		DynDiscPriceGroupMap = mapEntities(dynDiscPriceGroupRepository.findAll(), DynDiscPriceGroup::getId);
-		dynDiscSpecialMonthMap = mapEntities(dynDiscSpecialMonthRepository.findAll(), DynDiscSpecialMonth::getId);
-		dynDiscFreeMonthMap = mapEntities(dynDiscFreeMonthRepository.findAll(), DynDiscFreeMonth::getId);
-		log.info("Configuration data loaded successfully.");
+	public synchronized void loadConfigurations() {
+		if (current.get() == null && loadSnapshotFile()) {
+			return;
+		}
+		load(EnumSet.allOf(ConfigTable.class), readSignatures());
 	}
 
-	private <T, K> Map<K, T> mapEntities(Iterable<T> entities, Function<T, K> keyMapper) {
-		return ((List<T>) entities).stream()
-					.peek(entity -> log.debug("Mapping entity: {}", entity))    // Log each entity being mapped
-					.collect(Collectors.toMap(keyMapper, Function.identity())); // Convert the list to a map
+	/**
+	 * The latest configuration; lock-free.
+	 */
+	public ConfigSnapshot getSnapshot() {
+		return current.get();
 	}
-	
-	
-	//Builds a map that groups DynDiscOffer entities by their discount ID (discId).
-	public Map<Integer, List<DynDiscOffer>> buildDiscIdToOffersMap() {
-		
-        // Fetch all offers from the repository
-	    List<DynDiscOffer> offers = dynDiscOfferRepository.findAll(); 
-	    
-        // Group the offers by discId while filtering out those without a discId
-	    return offers.stream()
-	            .filter(offer -> offer.getDiscId() != null) // Filter out any offers that don't have a discId
-	            .collect(Collectors.groupingBy(DynDiscOffer::getDiscId)); // Group by discId
+
+	/**
+	 * Brings the configuration up to date before a request or dry run starts. With the background
+	 * poller, the current snapshot, at most one poll interval old, is used as it is, so starting a
+	 * request never waits for the lock or the change query; without it, what changed is reloaded now.
+	 */
+	public void refreshBeforeRequest() {
+		if (pollEnabled) {
+			log.debug("Configuration kept up to date by the poller; using version {}.", current.get().getVersion());
+			return;
+		}
+		refreshConfigurations();
 	}
 
-	
-	
-    // Synchronizes and reloads configuration data into memory.
-	public synchronized void refreshConfigurations() {
+    // Reloads the configuration tables that changed; returns whether a new snapshot was published.
+	public synchronized boolean refreshConfigurations() {
 		log.debug("Refreshing configuration data...");
-		loadConfigurations();
+		ConfigSnapshot previous = current.get();
+		Map<ConfigTable, String> signatures = readSignatures();
+		Set<ConfigTable> changed = EnumSet.noneOf(ConfigTable.class);
+		for (ConfigTable table : ConfigTable.values()) {
+			String signature = signatures.get(table);
+			if (previous == null || signature == null || !signature.equals(previous.getSignatures().get(table))) {
+				changed.add(table);
+			}
+		}
+		if (changed.isEmpty()) {
+			log.debug("Configuration data unchanged (version {}).", previous.getVersion());
+			return false;
+		}
+		load(changed, signatures);
+		eventPublisher.publishEvent(new ConfigurationsRefreshedEvent());
+		return true;
+	}
+
+	@Scheduled(fixedDelayString = "${config.refresh.poll.interval:60000}",
+			initialDelayString = "${config.refresh.poll.interval:60000}")
+	public void pollConfigurations() {
+		if (!pollEnabled) {
+			return;
+		}
+		try {
+			refreshConfigurations();
+		} catch (Exception e) {
+			log.error("✗ Background configuration refresh failed: {}", e.getMessage(), e);
+		}
+	}
+
+	// Signatures are read before the data, so a change racing with the load is seen again next time
+	private Map<ConfigTable, String> readSignatures() {
+		try {
+			return changeDetector.readSignatures();
+		} catch (DataAccessException e) {
+			log.warn("! Could not read configuration change signatures, reloading all tables: {}", e.getMessage());
+			return new EnumMap<>(ConfigTable.class);
+		}
+	}
+
+	private void load(Set<ConfigTable> tables, Map<ConfigTable, String> signatures) {
+		log.info("Loading configuration data {}...", tables);
+		ConfigSnapshot previous = current.get();
+		ConfigSnapshot snapshot = ConfigSnapshot.build(previous != null ? previous.getVersion() + 1 : 1, signatures,
+				rows(tables, ConfigTable.TYPE, dynDiscTypeRepository::findAll, previous,
+						s -> List.copyOf(s.getDynDiscTypeMap().values())),
+				rows(tables, ConfigTable.CONF, dynDiscConfRepository::findAll, previous,
+						s -> List.copyOf(s.getDynDiscConfMap().values())),
+				rows(tables, ConfigTable.OFFER, dynDiscOfferRepository::findAll, previous, ConfigSnapshot::getOffers),
+				rows(tables, ConfigTable.PRICE_GROUP, dynDiscPriceGroupRepository::findAll, previous,
+						s -> List.copyOf(s.getDynDiscPriceGroupMap().values())),
+				rows(tables, ConfigTable.SPECIAL_MONTH, dynDiscSpecialMonthRepository::findAll, previous,
+						s -> List.copyOf(s.getDynDiscSpecialMonthMap().values())),
+				rows(tables, ConfigTable.FREE_MONTH, dynDiscFreeMonthRepository::findAll, previous,
+						s -> List.copyOf(s.getDynDiscFreeMonthMap().values())));
+		current.set(snapshot);
+		log.info("Configuration data loaded successfully (version {}).", snapshot.getVersion());
+		saveSnapshotFile(snapshot);
+	}
+
+	// Starts from the saved snapshot; its signatures let the next refresh read only what changed since
+	private boolean loadSnapshotFile() {
+		if (snapshotFile.isBlank() || !Files.isRegularFile(Path.of(snapshotFile))) {
+			return false;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			ConfigSnapshot snapshot = ConfigSnapshotCodec.read(Path.of(snapshotFile));
+			current.set(snapshot);
+			log.info("✓ Configuration data loaded from {} (version {}) in {} ms.", snapshotFile, snapshot.getVersion(),
+					System.currentTimeMillis() - start);
+			return true;
+		} catch (IOException e) {
+			log.warn("! Could not read configuration snapshot file, loading from the database: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private void saveSnapshotFile(ConfigSnapshot snapshot) {
+		if (snapshotFile.isBlank()) {
+			return;
+		}
+		try {
+			ConfigSnapshotCodec.write(snapshot, Path.of(snapshotFile));
+			log.debug("Configuration snapshot version {} saved to {}.", snapshot.getVersion(), snapshotFile);
+		} catch (IOException e) {
+			log.warn("! Could not save configuration snapshot file {}: {}", snapshotFile, e.getMessage());
+		}
+	}
+
+	// Reads the table when it changed, else takes its rows from the previous snapshot
+	private static <T> List<T> rows(Set<ConfigTable> tables, ConfigTable table, Supplier<List<T>> reader,
+			ConfigSnapshot previous, Function<ConfigSnapshot, List<T>> reused) {
+		return previous == null || tables.contains(table) ? reader.get() : reused.apply(previous);
 	}
 }
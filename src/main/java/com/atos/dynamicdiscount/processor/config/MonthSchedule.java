@@ -0,0 +1,101 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
+
+/**
+ * Free and special months of one offer, as arrays indexed by month number, built once per
+ * configuration load so the calculator checks a month without allocating lookup keys.
+ */
+public final class MonthSchedule {
+
+	public static final MonthSchedule EMPTY = new MonthSchedule(new boolean[0], new boolean[0], new float[0], new float[0]);
+
+	private final boolean[] free;
+	private final boolean[] special;
+	private final float[] specialOfferAmounts;
+	private final float[] specialAloAmounts;
+
+	private MonthSchedule(boolean[] free, boolean[] special, float[] specialOfferAmounts, float[] specialAloAmounts) {
+		this.free = free;
+		this.special = special;
+		this.specialOfferAmounts = specialOfferAmounts;
+		this.specialAloAmounts = specialAloAmounts;
+	}
+
+	/**
+	 * Builds the schedule of every offer having free or special months, keyed by offer ID.
+	 */
+	public static Map<Integer, MonthSchedule> build(Collection<DynDiscFreeMonth> freeMonths,
+			Collection<DynDiscSpecialMonth> specialMonths) {
+		Map<Integer, Builder> builders = new HashMap<>();
+		for (DynDiscFreeMonth freeMonth : freeMonths) {
+			builders.computeIfAbsent(freeMonth.getId().getOfferId(), id -> new Builder())
+					.free(freeMonth.getId().getMonthNo());
+		}
+		for (DynDiscSpecialMonth specialMonth : specialMonths) {
+			builders.computeIfAbsent(specialMonth.getId().getOfferId(), id -> new Builder())
+					.special(specialMonth.getId().getMonthNo(), specialMonth.getOfferDiscAmt(), specialMonth.getAloDiscAmt());
+		}
+		Map<Integer, MonthSchedule> schedules = new HashMap<>();
+		builders.forEach((offerId, builder) -> schedules.put(offerId, builder.build()));
+		return Map.copyOf(schedules);
+	}
+
+	public boolean isFree(int month) {
+		return month >= 0 && month < free.length && free[month];
+	}
+
+	public boolean isSpecial(int month) {
+		return month >= 0 && month < special.length && special[month];
+	}
+
+	public float specialOfferAmount(int month) {
+		return specialOfferAmounts[month];
+	}
+
+	public float specialAloAmount(int month) {
+		return specialAloAmounts[month];
+	}
+
+	private static final class Builder {
+
+		private boolean[] free = new boolean[0];
+		private boolean[] special = new boolean[0];
+		private float[] specialOfferAmounts = new float[0];
+		private float[] specialAloAmounts = new float[0];
+
+		void free(int month) {
+			if (month < 0) {
+				return; // Never reached: month numbers start at 1
+			}
+			if (month >= free.length) {
+				free = Arrays.copyOf(free, month + 1);
+			}
+			free[month] = true;
+		}
+
+		void special(int month, float offerAmount, float aloAmount) {
+			if (month < 0) {
+				return;
+			}
+			if (month >= special.length) {
+				special = Arrays.copyOf(special, month + 1);
+				specialOfferAmounts = Arrays.copyOf(specialOfferAmounts, month + 1);
+				specialAloAmounts = Arrays.copyOf(specialAloAmounts, month + 1);
+			}
+			special[month] = true;
+			specialOfferAmounts[month] = offerAmount;
+			specialAloAmounts[month] = aloAmount;
+		}
+
+		MonthSchedule build() {
+			return new MonthSchedule(free, special, specialOfferAmounts, specialAloAmounts);
+		}
+	}
+}
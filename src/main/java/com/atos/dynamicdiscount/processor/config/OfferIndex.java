@@ -0,0 +1,91 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+
+/**
+ * Offer lookup built once per configuration load: offers are bucketed by discId and
+ * (tmcode, sncode), so the four matching tiers (exact, any tmcode, any sncode, catch-all)
+ * are resolved with one hash probe each instead of scanning every offer of the discount.
+ * Each bucket keeps the configured order, so ties are still won by the first offer.
+ */
+public final class OfferIndex {
+
+	private static final int WILDCARD = -1;
+
+	private final Map<Integer, Map<OfferKey, List<OfferEntry>>> offersByDiscId;
+
+	private OfferIndex(Map<Integer, Map<OfferKey, List<OfferEntry>>> offersByDiscId) {
+		this.offersByDiscId = offersByDiscId;
+	}
+
+	public static OfferIndex build(Collection<DynDiscOffer> offers) {
+		Map<Integer, Map<OfferKey, List<OfferEntry>>> index = new HashMap<>();
+		for (DynDiscOffer offer : offers) {
+			// An offer without tmcode or sncode cannot match any assignment
+			if (offer.getDiscId() == null || offer.getTmcode() == null || offer.getSncode() == null) {
+				continue;
+			}
+			index.computeIfAbsent(offer.getDiscId(), discId -> new HashMap<>())
+					.computeIfAbsent(new OfferKey(offer.getTmcode(), offer.getSncode()), key -> new ArrayList<>())
+					.add(new OfferEntry(offer, offer.getEligStartDate() != null ? DiscountRow.toEpochSecond(offer.getEligStartDate()) : Long.MIN_VALUE,
+							offer.getEligEndDate() != null ? DiscountRow.toEpochSecond(offer.getEligEndDate()) : Long.MAX_VALUE));
+		}
+		index.replaceAll((discId, buckets) -> {
+			buckets.replaceAll((key, bucket) -> List.copyOf(bucket));
+			return Collections.unmodifiableMap(buckets);
+		});
+		return new OfferIndex(Collections.unmodifiableMap(index));
+	}
+
+	/**
+	 * Returns the offer of the discount that best matches the tmcode/sncode and whose eligibility
+	 * period contains the assignment date, or null when none does. An exact match wins over an
+	 * sncode-only match, then a tmcode-only match, then the catch-all offer. The assignment date
+	 * is in local epoch seconds, as in {@link DiscountRow}.
+	 */
+	public DynDiscOffer findBestOffer(int discId, int tmcode, int sncode, long assignDate) {
+		Map<OfferKey, List<OfferEntry>> buckets = offersByDiscId.get(discId);
+		if (buckets == null) {
+			return null;
+		}
+		DynDiscOffer offer = firstEligible(buckets.get(new OfferKey(tmcode, sncode)), assignDate);
+		if (offer == null) {
+			offer = firstEligible(buckets.get(new OfferKey(WILDCARD, sncode)), assignDate);
+		}
+		if (offer == null) {
+			offer = firstEligible(buckets.get(new OfferKey(tmcode, WILDCARD)), assignDate);
+		}
+		if (offer == null) {
+			offer = firstEligible(buckets.get(new OfferKey(WILDCARD, WILDCARD)), assignDate);
+		}
+		return offer;
+	}
+
+	// Eligible dates --> assignDate >= EligStartDate && assignDate <= EligEndDate
+	private static DynDiscOffer firstEligible(List<OfferEntry> bucket, long assignDate) {
+		if (bucket == null) {
+			return null;
+		}
+		for (OfferEntry entry : bucket) {
+			if (assignDate >= entry.eligStart() && assignDate <= entry.eligEnd()) {
+				return entry.offer();
+			}
+		}
+		return null;
+	}
+
+	private record OfferKey(int tmcode, int sncode) {
+	}
+
+	// Eligibility period in local epoch seconds; open ends are Long.MIN_VALUE / Long.MAX_VALUE
+	private record OfferEntry(DynDiscOffer offer, long eligStart, long eligEnd) {
+	}
+}
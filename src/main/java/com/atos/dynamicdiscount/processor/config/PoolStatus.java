@@ -0,0 +1,21 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Saturation snapshot of one connection pool.
+ */
+@Value
+@Builder
+public class PoolStatus {
+
+	String role;
+	String poolName;
+	int activeConnections;
+	int idleConnections;
+	int totalConnections;
+	int threadsAwaitingConnection;
+	int maxConnections;
+	double utilization; // Active / max connections
+}
@@ -0,0 +1,72 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
+
+/**
+ * Price-group rules per discId, built once per configuration load, so the validator checks a
+ * prgcode with one lookup and a set membership test. Rows flagged both or neither restrict and
+ * prohibit are ignored, as before.
+ */
+public final class PriceGroupIndex {
+
+	private final Map<Integer, Rules> rulesByDiscId;
+
+	private PriceGroupIndex(Map<Integer, Rules> rulesByDiscId) {
+		this.rulesByDiscId = rulesByDiscId;
+	}
+
+	public static PriceGroupIndex build(Collection<DynDiscPriceGroup> priceGroups) {
+		Map<Integer, Set<String>> restricted = new HashMap<>();
+		Map<Integer, Set<String>> prohibited = new HashMap<>();
+		for (DynDiscPriceGroup group : priceGroups) {
+			if (group.isRestrictInd() == group.isProhibitInd()) {
+				continue;
+			}
+			Integer discId = group.getId().getDiscId();
+			(group.isRestrictInd() ? restricted : prohibited)
+					.computeIfAbsent(discId, id -> new HashSet<>())
+					.add(group.getId().getPrgcode());
+		}
+
+		Map<Integer, Rules> rules = new HashMap<>();
+		Set<Integer> discIds = new HashSet<>(restricted.keySet());
+		discIds.addAll(prohibited.keySet());
+		for (Integer discId : discIds) {
+			rules.put(discId, new Rules(Set.copyOf(restricted.getOrDefault(discId, Set.of())),
+					Set.copyOf(prohibited.getOrDefault(discId, Set.of()))));
+		}
+		return new PriceGroupIndex(Map.copyOf(rules));
+	}
+
+	/**
+	 * Rules of the discount; null when it has no price-group restriction.
+	 */
+	public Rules rulesFor(Integer discId) {
+		return rulesByDiscId.get(discId);
+	}
+
+	/**
+	 * Restricted price groups are the only ones allowed; when there are none, the prohibited
+	 * ones are excluded.
+	 */
+	public record Rules(Set<String> restricted, Set<String> prohibited) {
+
+		public boolean isRestricted() {
+			return !restricted.isEmpty();
+		}
+
+		public boolean isAllowedByRestriction(String prgcode) {
+			return prgcode != null && restricted.contains(prgcode);
+		}
+
+		public boolean isProhibited(String prgcode) {
+			return prgcode != null && prohibited.contains(prgcode);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Routes each connection request to the pool of the current thread's {@link DataSourceRole}.
+ */
+public class RoleRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+	private final Map<DataSourceRole, HikariDataSource> pools;
+
+	public RoleRoutingDataSource(Map<DataSourceRole, HikariDataSource> pools) {
+		this.pools = Collections.unmodifiableMap(pools);
+		setTargetDataSources(new HashMap<>(pools));
+		setDefaultTargetDataSource(pools.get(DataSourceRole.WRITE));
+	}
+
+	public Map<DataSourceRole, HikariDataSource> getPools() {
+		return pools;
+	}
+
+	@Override
+	public void close() {
+		pools.values().forEach(HikariDataSource::close);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return DataSourceRole.current();
+	}
+}
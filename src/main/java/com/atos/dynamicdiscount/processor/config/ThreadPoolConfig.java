@@ -1,18 +1,26 @@
 package com.atos.dynamicdiscount.processor.config;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import lombok.extern.slf4j.Slf4j;
+
 @Configuration
 @EnableAsync
 @EnableTransactionManagement
 @EnableRetry
-
+@Slf4j
 public class ThreadPoolConfig {
 
 	@Value("${threadpool.default-core-size}")
@@ -24,7 +32,30 @@ public class ThreadPoolConfig {
 	@Value("${threadpool.default-queue-capacity}")
 	private int queueCapacity;
 
+	@Value("${processing.max.concurrent.packages:10}")
+	private int maxConcurrentPackages;
+
+	@Value("${processing.max.concurrent.chunks:10}")
+	private int maxConcurrentChunks;
+
+	@Value("${processing.adaptive.enabled:false}")
+	private boolean adaptiveEnabled;
+
+	@Value("${processing.adaptive.max.chunk.workers:40}")
+	private int adaptiveMaxChunkWorkers;
+
+	@Value("${occ.grant.outbox.workers:4}")
+	private int grantOutboxWorkers;
+
+	@Value("${processing.execution.mode:platform}")
+	private String executionMode;
+
+	// Request runs whose workers fit in the worker pools at once (a resume next to a new request)
+	@Value("${processing.max.concurrent.requests:2}")
+	private int maxConcurrentRequests;
+
 	@Bean
+	@Primary
 	public ThreadPoolTaskExecutor taskExecutor() {
 		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 		executor.setCorePoolSize(corePoolSize); // Minimum number of threads to keep in the pool
@@ -34,5 +65,108 @@ public class ThreadPoolConfig {
 		executor.initialize();
 		return executor;
 	}
-	
+
+	/**
+	 * Package-level pool used to load packages. Loaders only wait for room on the work
+	 * queue, which is drained by the separate chunk pool, so they never wait on themselves.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor packageTaskExecutor() {
+		return boundedExecutor("PackageExecutor-", maxConcurrentPackages);
+	}
+
+	/**
+	 * Chunk-level pool running the chunk workers, one per package slot and chunk, or up to
+	 * the adaptive maximum when the concurrency controller is enabled, for each concurrent run.
+	 * Chunk workers never wait on other tasks.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor chunkTaskExecutor() {
+		return workerExecutor("ChunkExecutor-", chunkPoolSize() * Math.max(1, maxConcurrentRequests));
+	}
+
+	/**
+	 * Grant worker pool of the outbox mode, sized independently of evaluation, so a slow
+	 * billing system only delays grants. Holds the grant workers of each concurrent run.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor grantTaskExecutor() {
+		return workerExecutor("GrantExecutor-", grantOutboxWorkers * Math.max(1, maxConcurrentRequests));
+	}
+
+	/**
+	 * Pool evaluating the chunks of a dry run, so a dry run never takes threads from the chunk
+	 * workers of a running request.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor dryRunTaskExecutor() {
+		return boundedExecutor("DryRunExecutor-", chunkPoolSize());
+	}
+
+	private int chunkPoolSize() {
+		int size = maxConcurrentPackages * maxConcurrentChunks;
+		if (adaptiveEnabled) {
+			size = Math.max(size, adaptiveMaxChunkWorkers);
+		}
+		return size;
+	}
+
+	/**
+	 * Fixed-size pool with a bounded queue for tasks that end on their own; once saturated the
+	 * submitting thread runs the task itself (backpressure) instead of getting a RejectedExecutionException.
+	 */
+	private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int size) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(size);
+		executor.setMaxPoolSize(size);
+		executor.setQueueCapacity(size);
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.setThreadNamePrefix(threadNamePrefix);
+		executor.initialize();
+		return executor;
+	}
+
+	/**
+	 * Fixed-size pool for worker loops that only return at the end of a request, without a
+	 * queue. A worker run by the submitting thread would never hand it back, and a queued one
+	 * would only start once another request ends, so a saturated pool rejects the worker
+	 * (RejectedExecutionException) and the request fails fast instead. The pools are sized
+	 * for processing.max.concurrent.requests runs, so this only happens beyond that.
+	 */
+	private ThreadPoolTaskExecutor workerExecutor(String threadNamePrefix, int size) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(size);
+		executor.setMaxPoolSize(size);
+		executor.setQueueCapacity(0);
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		executor.setThreadNamePrefix(threadNamePrefix);
+		executor.initialize();
+		return executor;
+	}
+
+	/**
+	 * Executor used by the "virtual" processing mode: one virtual thread per task.
+	 * Virtual threads need JDK 21+, so the factory is resolved reflectively; on older
+	 * runtimes an unbounded cached platform pool is used instead and the DB permits stay
+	 * the only cap. That fallback is logged as a warning when virtual mode is configured.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService virtualTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			log.info("Virtual thread executor available.");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			if ("virtual".equalsIgnoreCase(executionMode)) {
+				log.warn("! processing.execution.mode=virtual, but this JVM ({}) has no virtual threads (JDK 21+). "
+						+ "Packages and chunks run on an unbounded cached platform thread pool, capped only by "
+						+ "processing.db.permits and the concurrency limits.", System.getProperty("java.version"));
+			} else {
+				log.debug("Virtual threads not supported by this JVM ({}); virtual mode would use a cached thread pool.",
+						System.getProperty("java.version"));
+			}
+			return Executors.newCachedThreadPool();
+		}
+	}
+
 }
@@ -0,0 +1,199 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.config.DataSourceRole;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adjusts the package and chunk concurrency limits of the running requests using AIMD:
+ * the chunk limit grows additively while throughput keeps improving and is cut
+ * multiplicatively when threads wait for a write pool connection or when the contract or
+ * OCC grant p95 latency rises well above the best value seen in the request.
+ * The package limit follows the chunk limit. Each run gets its own {@link ConcurrencyLimits}.
+ * When disabled, the configured limits stay fixed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveConcurrencyController {
+
+	private static final int MAX_DECISIONS = 100;
+	private static final int MIN_SAMPLES = 20;
+
+	private final ConnectionPools connectionPools;
+	private final ProcessingMetrics metrics;
+
+	@Value("${processing.adaptive.enabled:false}")
+	private boolean enabled;
+
+	@Value("${processing.adaptive.min.chunk.workers:2}")
+	private int minChunkWorkers;
+
+	@Value("${processing.adaptive.max.chunk.workers:40}")
+	private int maxChunkWorkers;
+
+	@Value("${processing.adaptive.increase.step:2}")
+	private int increaseStep;
+
+	@Value("${processing.adaptive.backoff.factor:0.75}")
+	private double backoffFactor;
+
+	// Latency above baseline x tolerance counts as saturation
+	@Value("${processing.adaptive.latency.tolerance:2.0}")
+	private double latencyTolerance;
+
+	private final Deque<ConcurrencyDecision> decisions = new ArrayDeque<>();
+
+	// Limits of the runs in progress
+	private final Set<ConcurrencyLimits> runs = new LinkedHashSet<>();
+
+	/**
+	 * Starts controlling a request run from the configured limits and returns its own limits.
+	 * Their number of chunk workers to start is the upper bound the chunk limit may reach.
+	 */
+	public synchronized ConcurrencyLimits begin(Integer requestId, int packages, int chunksPerPackage) {
+		int chunks = packages * chunksPerPackage;
+		int workers = enabled ? Math.max(chunks, maxChunkWorkers) : chunks;
+		ConcurrencyLimits limits = new ConcurrencyLimits(requestId, packages, chunksPerPackage, workers);
+		if (runs.isEmpty()) {
+			// Latency samples are shared by all runs; a run next to another one keeps them
+			metrics.getContractLatency().reset();
+			metrics.getGrantLatency().reset();
+		}
+		runs.add(limits);
+
+		if (enabled) {
+			log.info("Adaptive concurrency enabled for request ID {}: starting at {} packages / {} chunks, up to {} chunk workers.",
+					requestId, packages, chunks, workers);
+		}
+		return limits;
+	}
+
+	public synchronized void end(ConcurrencyLimits limits) {
+		runs.remove(limits);
+	}
+
+	/**
+	 * Returns the most recent decisions, latest first.
+	 */
+	public synchronized List<ConcurrencyDecision> getDecisions() {
+		return new ArrayList<>(decisions);
+	}
+
+	@Scheduled(fixedRateString = "${processing.adaptive.interval:10000}")
+	public synchronized void adjust() {
+		if (!enabled || runs.isEmpty()) {
+			return;
+		}
+
+		// Pool waits and latencies are shared by the runs in progress; throughput is per run
+		boolean enoughContractSamples = metrics.getContractLatency().size() >= MIN_SAMPLES;
+		boolean enoughGrantSamples = metrics.getGrantLatency().size() >= MIN_SAMPLES;
+		double contractP95 = metrics.getContractLatency().percentileMillis(95);
+		double grantP95 = metrics.getGrantLatency().percentileMillis(95);
+		metrics.getContractLatency().reset();
+		metrics.getGrantLatency().reset();
+		int awaiting = threadsAwaitingConnection();
+
+		for (ConcurrencyLimits run : runs) {
+			adjust(run, awaiting, enoughContractSamples ? contractP95 : -1, enoughGrantSamples ? grantP95 : -1);
+		}
+	}
+
+	// A p95 of -1 means too few samples in the interval to judge it
+	private void adjust(ConcurrencyLimits run, int awaiting, double contractP95, double grantP95) {
+		long now = System.nanoTime();
+		long completed = run.getCompletedContracts();
+		double throughput = (completed - run.lastCompleted) * 1_000_000_000.0 / Math.max(1, now - run.lastTick);
+		run.lastTick = now;
+		run.lastCompleted = completed;
+
+		if (contractP95 >= 0) {
+			run.baselineContractP95 = run.baselineContractP95 == 0 ? contractP95 : Math.min(run.baselineContractP95, contractP95);
+		}
+		if (grantP95 >= 0) {
+			run.baselineGrantP95 = run.baselineGrantP95 == 0 ? grantP95 : Math.min(run.baselineGrantP95, grantP95);
+		}
+
+		AdjustableLimit chunkLimit = run.getChunkLimit();
+		int current = chunkLimit.getLimit();
+		int next = current;
+		String action;
+		String reason;
+
+		if (awaiting > 0) {
+			next = decrease(current);
+			action = "DECREASE";
+			reason = awaiting + " threads awaiting a DB connection";
+		} else if (contractP95 >= 0 && contractP95 > run.baselineContractP95 * latencyTolerance) {
+			next = decrease(current);
+			action = "DECREASE";
+			reason = String.format("contract p95 %.1f ms above baseline %.1f ms", contractP95, run.baselineContractP95);
+		} else if (grantP95 >= 0 && grantP95 > run.baselineGrantP95 * latencyTolerance) {
+			next = decrease(current);
+			action = "DECREASE";
+			reason = String.format("grant p95 %.1f ms above baseline %.1f ms", grantP95, run.baselineGrantP95);
+		} else if (throughput >= run.lastThroughput) {
+			next = Math.min(current + increaseStep, run.getWorkers());
+			action = next > current ? "INCREASE" : "HOLD";
+			reason = String.format("throughput %.1f/s (previous %.1f/s)", throughput, run.lastThroughput);
+		} else {
+			action = "HOLD";
+			reason = String.format("throughput dropped from %.1f/s to %.1f/s", run.lastThroughput, throughput);
+		}
+		run.lastThroughput = throughput;
+
+		int packages = run.packagesFor(next);
+		chunkLimit.setLimit(next);
+		run.getPackageLimit().setLimit(packages);
+
+		ConcurrencyDecision decision = ConcurrencyDecision.builder()
+				.time(LocalDateTime.now())
+				.requestId(run.getRequestId())
+				.action(action)
+				.reason(reason)
+				.packageLimit(packages)
+				.chunkLimit(next)
+				.threadsAwaitingConnection(awaiting)
+				.contractP95Ms(Math.max(0, contractP95))
+				.grantP95Ms(Math.max(0, grantP95))
+				.contractsPerSecond(throughput)
+				.build();
+		decisions.addFirst(decision);
+		if (decisions.size() > MAX_DECISIONS) {
+			decisions.removeLast();
+		}
+
+		if (next != current) {
+			log.info("Adaptive concurrency (request ID {}): {} chunk limit {} -> {}, package limit {} ({}).",
+					run.getRequestId(), action, current, next, packages, reason);
+		} else {
+			log.debug("Adaptive concurrency (request ID {}): {} at chunk limit {} ({}).",
+					run.getRequestId(), action, current, reason);
+		}
+	}
+
+	private int decrease(int current) {
+		return Math.max(minChunkWorkers, (int) (current * backoffFactor));
+	}
+
+	private int threadsAwaitingConnection() {
+		// Chunk workers borrow from the write pool
+		return connectionPools.threadsAwaitingConnection(DataSourceRole.WRITE);
+	}
+}
@@ -0,0 +1,33 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphore whose number of permits can be changed while permits are held.
+ * Lowering the limit takes effect as running holders release their permits.
+ */
+public class AdjustableLimit extends Semaphore {
+
+	private static final long serialVersionUID = 1L;
+
+	private int limit;
+
+	public AdjustableLimit(int limit) {
+		super(limit);
+		this.limit = limit;
+	}
+
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+	public synchronized void setLimit(int newLimit) {
+		int delta = newLimit - limit;
+		if (delta > 0) {
+			release(delta);
+		} else if (delta < 0) {
+			reducePermits(-delta);
+		}
+		limit = newLimit;
+	}
+}
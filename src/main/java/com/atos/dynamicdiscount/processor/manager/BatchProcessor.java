@@ -3,60 +3,148 @@ package com.atos.dynamicdiscount.processor.manager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import com.atos.dynamicdiscount.model.dto.DynDiscAssignDTO;
+import com.atos.dynamicdiscount.model.dto.DiscountColumns;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
 import com.atos.dynamicdiscount.model.entity.DynDiscContract;
 import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
-import com.atos.dynamicdiscount.repository.DynDiscAssignRepository;
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.config.DataSourceRole;
+import com.atos.dynamicdiscount.processor.service.evaluation.ColumnarEvaluator;
+import com.atos.dynamicdiscount.processor.service.evaluation.EvaluationBatch;
+import com.atos.dynamicdiscount.processor.service.granting.GrantOutboxService;
+import com.atos.dynamicdiscount.processor.service.loading.PackageDiscountReader;
 import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
 import com.atos.dynamicdiscount.repository.DynDiscPackageRepository;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.zaxxer.hikari.HikariDataSource;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * BatchProcessor is responsible for managing and processing packages and their associated contracts.
- * It processes packages in parallel up to a defined limit, splits contracts into chunks,
- * and processes each chunk asynchronously.
+ * It loads packages in parallel up to a defined limit, splits contracts into chunks and queues them
+ * on one request-wide work queue drained by a shared set of chunk workers. Packages and chunks run
+ * on separate pools, and package loaders never wait for chunk processing.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BatchProcessor {
 
-    private final DynDiscAssignRepository assignRepository;
     private final DynDiscPackageRepository packageRepo;
     private final DynDiscContractRepository contractRepo;
     private final ContractProcessor contractProcessor;
-    private final ThreadPoolTaskExecutor executor;
+    private final PackageDiscountReader discountReader;
+    private final ColumnarEvaluator columnarEvaluator;
+    private final GrantOutboxService grantOutbox;
+    @Qualifier("packageTaskExecutor")
+    private final ThreadPoolTaskExecutor packageExecutor;
+    @Qualifier("chunkTaskExecutor")
+    private final ThreadPoolTaskExecutor chunkExecutor;
+    private final ExecutorService virtualTaskExecutor;
+    private final ConnectionPools connectionPools;
+    private final AdaptiveConcurrencyController concurrencyController;
+    private final ProcessingMetrics metrics;
+
+    private static final String VIRTUAL_MODE = "virtual"; // One virtual thread per package/chunk
+    private static final String CHUNK_TRANSACTION = "chunk"; // One transaction per commit interval, savepoint per contract
+    private static final String STREAM_LOADER = "stream"; // Stream assignments per contract instead of loading the package
 
     // Reflects concurrency limit for packages
     @Value("${processing.max.concurrent.packages:10}")
     private int maxConcurrentPackages;
     
-    // Reflects the concurrency limit for chunks per package
+    // Reflects the chunk workers per package slot (workers = packages x chunks)
     @Value("${processing.max.concurrent.chunks:10}")
     private int maxConcurrentChunks;
 
+    // Chunks buffered on the request-wide work queue (0 = one per chunk worker)
+    @Value("${processing.work.queue.capacity:0}")
+    private int workQueueCapacity;
+
     // Reflects the number of contracts processed per chunk
     @Value("${processing.contracts.per.chunk:1000}")
     private int contractsPerChunk;
 
-    
+    // Package loader: "list" (load all assignments, then chunk) or "stream" (cursor ordered by co_id)
+    @Value("${processing.loader.mode:list}")
+    private String loaderMode;
+
+    // Packages that may be loaded ahead of the ones being evaluated
+    @Value("${processing.prefetch.depth:1}")
+    private int prefetchDepth;
+
+    // Contract and assignment rows held by queued chunks (0 = bounded by the work queue only)
+    @Value("${processing.prefetch.max.rows:0}")
+    private int prefetchMaxRows;
+
+    // Transaction scope: "contract" (one transaction per contract) or "chunk" (per commit interval)
+    @Value("${processing.transaction.mode:contract}")
+    private String transactionMode;
+
+    // Contracts committed together in chunk transaction mode
+    @Value("${processing.transaction.commit.interval:100}")
+    private int commitInterval;
+
+    // Execution mode for packages and chunks: "platform" (thread pool) or "virtual"
+    @Value("${processing.execution.mode:platform}")
+    private String executionMode;
+
+    // Concurrent contract DB calls allowed in virtual mode (0 = maximum size of the write pool)
+    @Value("${processing.db.permits:0}")
+    private int dbPermitCount;
+
+    // Caps DB-bound work in virtual mode, where the thread count no longer does
+    private Semaphore dbPermits;
+
+    // Memory budget of prefetched chunks, in rows; null when unbounded
+    private Semaphore prefetchRows;
+
+    @PostConstruct
+    void initDbPermits() {
+        int permits = dbPermitCount;
+        if (permits <= 0) {
+            HikariDataSource writePool = connectionPools.pool(DataSourceRole.WRITE);
+            permits = writePool != null ? writePool.getMaximumPoolSize() : maxConcurrentChunks;
+        }
+        dbPermits = new Semaphore(permits);
+        prefetchRows = prefetchMaxRows > 0 ? new Semaphore(prefetchMaxRows) : null;
+        log.info("Batch execution mode: '{}', DB permits: {}, prefetch depth: {}, prefetch rows: {}.",
+                executionMode, permits, prefetchDepth, prefetchMaxRows > 0 ? prefetchMaxRows : "unbounded");
+    }
 
     /**
-     * Processes all available packages for a given request. Packages are processed concurrently,
-     * limited by the maximum number of parallel packages allowed.
+     * Processes all available packages for a given request. Packages are loaded concurrently,
+     * limited by the maximum number of parallel packages allowed, and their chunks are put on a
+     * single request-wide work queue. Chunk workers take the next chunk regardless of its package,
+     * so a slow package no longer leaves the remaining capacity idle. A package frees its loading
+     * slot as soon as its chunks are queued, so the next packages are read while it is evaluated,
+     * up to the configured prefetch depth.
      */
     public void processRequestPackages(DynDiscRequest request) {
         Integer requestId = request.getRequestId();
@@ -64,146 +152,429 @@ public class BatchProcessor {
 
         if (packageIds.isEmpty()) {
             log.info("No packages with status 'I' available for request ID: {}", requestId);
+            grantOutbox.grantPending(requestId); // Grants left in the outbox by an earlier run
             return;
         }
 
-        log.info("Found {} packages to process for request ID: {}. Processing up to {} in parallel.",
-                packageIds.size(), requestId, maxConcurrentPackages);
-
-        // Semaphore to limit the number of concurrently processed packages
-        Semaphore semaphore = new Semaphore(maxConcurrentPackages);
+        ConcurrencyLimits limits = concurrencyController.begin(requestId, maxConcurrentPackages, maxConcurrentChunks);
+        int workerCount = limits.getWorkers();
+        log.info("Found {} packages to process for request ID: {}. Loading up to {} in parallel, {} chunk workers.",
+                packageIds.size(), requestId, maxConcurrentPackages, workerCount);
+
+        RequestRun run = new RequestRun(request, limits);
+        long startTime = System.currentTimeMillis();
+
+        BlockingQueue<ContractChunk> workQueue = new LinkedBlockingQueue<>(
+                workQueueCapacity > 0 ? workQueueCapacity : workerCount);
+        AtomicBoolean evaluationDone = new AtomicBoolean();
+        List<CompletableFuture<Void>> workers = new ArrayList<>(workerCount);
+        List<CompletableFuture<Void>> grantWorkers;
+        try {
+            startChunkWorkers(run, workQueue, workerCount, workers);
+            grantWorkers = grantOutbox.isOutboxMode() || grantOutbox.hasPendingGrants(requestId)
+                    ? grantOutbox.startWorkers(requestId, evaluationDone::get)
+                    : List.of();
+        } catch (RejectedExecutionException e) {
+            // Nothing is loaded yet: stop the workers already started and leave the packages at 'I'
+            workers.forEach(worker -> Uninterruptibles.putUninterruptibly(workQueue, ContractChunk.END));
+            evaluationDone.set(true);
+            concurrencyController.end(limits);
+            throw new IllegalStateException("Worker pools are saturated by other running requests "
+                    + "(processing.max.concurrent.requests); request ID " + requestId + " not started.", e);
+        }
 
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        // Limits the number of packages being loaded; resized by the concurrency controller
+        Semaphore semaphore = limits.getPackageLimit();
+        // Limits the number of packages loaded and not yet completed, prefetched ones included
+        Semaphore inFlight = new Semaphore(limits.getMaxPackages() + Math.max(0, prefetchDepth));
+        CountDownLatch packagesDone = new CountDownLatch(packageIds.size());
 
         for (Integer packageId : packageIds) {
-            semaphore.acquireUninterruptibly(); // Acquire a permit before processing a package
-            CompletableFuture<Void> future = processPackage(packageId, request)
-                    .whenComplete((result, ex) -> semaphore.release()); // Release the permit after completion
-            futures.add(future);
+            inFlight.acquireUninterruptibly();
+            semaphore.acquireUninterruptibly(); // Acquire a permit before loading a package
+            Runnable onComplete = () -> {
+                inFlight.release(); // Released once the last chunk of the package is done
+                packagesDone.countDown();
+            };
+            CompletableFuture.runAsync(() -> {
+                try {
+                    DataSourceRole.runAs(DataSourceRole.ENRICHMENT,
+                            () -> loadPackage(packageId, request, workQueue, onComplete));
+                } finally {
+                    semaphore.release(); // Loading is done, the next package may be read meanwhile
+                }
+            }, packageExecutor());
         }
 
-        // Wait for all packages to finish processing
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        // Wait for all packages to finish processing, then stop the workers
+        Uninterruptibles.awaitUninterruptibly(packagesDone);
+        workers.forEach(worker -> Uninterruptibles.putUninterruptibly(workQueue, ContractChunk.END));
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+        concurrencyController.end(limits);
+
+        // In outbox mode, wait for the grant workers to drain the grants queued by the evaluation
+        evaluationDone.set(true);
+        if (!grantWorkers.isEmpty()) {
+            long evaluationEnd = System.currentTimeMillis();
+            CompletableFuture.allOf(grantWorkers.toArray(new CompletableFuture[0])).join();
+            log.info("Grant outbox drained for request ID: {} in {} ms after evaluation.",
+                    requestId, System.currentTimeMillis() - evaluationEnd);
+        }
 
         log.info("All package processing has been completed for request ID: {}", requestId);
+        logThroughput(run, System.currentTimeMillis() - startTime);
     }
 
     /**
-     * Processes a single package, including loading discounts, splitting contracts into chunks,
-     * and processing each chunk asynchronously.
+     * Starts the chunk workers draining the request-wide work queue until they take {@link ContractChunk#END},
+     * adding them to {@code workers} as they start; fails when the chunk pool has no free thread left.
+     * A worker only takes a chunk while holding a permit of the controller's chunk limit.
      */
-    private CompletableFuture<Void> processPackage(Integer packageId, DynDiscRequest request) {
-        return CompletableFuture.runAsync(() -> {
-            log.info("→ Starting processing for package ID: {}", packageId);
-            try {
-                packageRepo.updatePackageStatusAndStartDate(packageId, "W", LocalDateTime.now());
+    private void startChunkWorkers(RequestRun run, BlockingQueue<ContractChunk> workQueue, int workerCount,
+            List<CompletableFuture<Void>> workers) {
+        AdjustableLimit chunkLimit = run.limits.getChunkLimit();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                while (true) {
+                    chunkLimit.acquireUninterruptibly();
+                    try {
+                        ContractChunk chunk = Uninterruptibles.takeUninterruptibly(workQueue);
+                        if (chunk == ContractChunk.END) {
+                            return;
+                        }
+                        processContractChunk(chunk, run);
+                    } finally {
+                        chunkLimit.release();
+                    }
+                }
+            }, chunkExecutor()));
+        }
+    }
 
-                Map<Integer, List<DynDiscAssignDTO>> discountsByCoId = loadDiscountsByCoId(packageId, request);
-                List<DynDiscContract> packageContracts = contractRepo.fetchContractsForPackage(packageId, request.getRequestId());
+    /**
+     * Logs the contract throughput of a request, so execution modes can be compared run by run.
+     */
+    private void logThroughput(RequestRun run, long durationMs) {
+        Integer requestId = run.request.getRequestId();
+        long contracts = run.limits.getCompletedContracts();
+        long commitCount = run.commits.sum();
+        double perSecond = durationMs > 0 ? contracts * 1000.0 / durationMs : contracts;
+        double commitsPerSecond = durationMs > 0 ? commitCount * 1000.0 / durationMs : commitCount;
+        log.info("Request ID: {}. Processed {} contracts in {} ms ({} contracts/s, mode={}).",
+                requestId, contracts, durationMs, String.format("%.1f", perSecond), executionMode);
+        log.info("Request ID: {}. {} commits ({} commits/s, transaction mode={}), {} groups retried contract by contract.",
+                requestId, commitCount, String.format("%.1f", commitsPerSecond), transactionMode, run.groupRetries.sum());
+    }
 
-                if (packageContracts.isEmpty()) {
-                    handleEmptyPackage(packageId);
-                    return;
-                }
+    private boolean isChunkTransactionMode() {
+        return CHUNK_TRANSACTION.equalsIgnoreCase(transactionMode);
+    }
+
+    private boolean isVirtualMode() {
+        return VIRTUAL_MODE.equalsIgnoreCase(executionMode);
+    }
 
+    private Executor packageExecutor() {
+        return isVirtualMode() ? virtualTaskExecutor : packageExecutor;
+    }
+
+    private Executor chunkExecutor() {
+        return isVirtualMode() ? virtualTaskExecutor : chunkExecutor;
+    }
+
+    /**
+     * Loads a single package, splits its contracts into chunks and queues them on the work queue.
+     * The package is completed by whoever finishes its last unit of work, the loader included.
+     */
+    private void loadPackage(Integer packageId, DynDiscRequest request, BlockingQueue<ContractChunk> workQueue,
+            Runnable onComplete) {
+        log.info("→ Starting processing for package ID: {}", packageId);
+        PackageProgress progress = new PackageProgress(packageId, onComplete);
+        try {
+            packageRepo.updatePackageStatusAndStartDate(packageId, "W", LocalDateTime.now());
+
+            List<DynDiscContract> packageContracts = contractRepo.fetchContractsForPackage(packageId, request.getRequestId());
+
+            if (packageContracts.isEmpty()) {
+                log.warn("No contracts found for package ID: {}. Marking as processed.", packageId);
+            } else if (columnarEvaluator.isEnabled()) {
+                evaluateColumnar(progress, request, packageContracts, workQueue);
+            } else if (STREAM_LOADER.equalsIgnoreCase(loaderMode)) {
+                streamContractChunks(progress, request, packageContracts, workQueue);
+            } else {
+                Map<Integer, List<DiscountRow>> discountsByCoId = loadDiscountsByCoId(packageId, request);
                 log.info("Package ID: {}. Loaded {} contracts and {} discount assignments.",
                         packageId, packageContracts.size(), discountsByCoId.values().stream().mapToInt(List::size).sum());
+                enqueueContractChunks(progress, discountsByCoId, packageContracts, workQueue);
+            }
+        } catch (Exception e) {
+            log.error("✗ Critical error processing package ID: {}. Package will be marked as 'F' (Failed).", packageId, e);
+            progress.markFailed();
+        } finally {
+            if (progress.chunkDone()) {
+                completePackage(progress);
+            }
+        }
+    }
+
+    private Map<Integer, List<DiscountRow>> loadDiscountsByCoId(Integer packageId, DynDiscRequest request) {
+        return discountReader.fetchDiscountsByCoId(packageId, request.getRequestId(), request.getBillPeriodEndDate());
+    }
+
+    private void enqueueContractChunks(PackageProgress progress, Map<Integer, List<DiscountRow>> discountsByCoId,
+            List<DynDiscContract> packageContracts, BlockingQueue<ContractChunk> workQueue) {
+        List<List<DynDiscContract>> contractChunks = Lists.partition(packageContracts, contractsPerChunk);
+        log.info("Package ID: {}. Splitting {} contracts into {} chunks of size {}.", progress.getPackageId(),
+                packageContracts.size(), contractChunks.size(), contractsPerChunk);
+
+        for (List<DynDiscContract> chunk : contractChunks) {
+            enqueueChunk(progress, chunk, discountsByCoId, null, workQueue);
+        }
+    }
+
+    /**
+     * Loads the package's assignments into columns and evaluates all of its contracts at once with
+     * the columnar engine; the chunks then only grant and record the evaluated results.
+     */
+    private void evaluateColumnar(PackageProgress progress, DynDiscRequest request,
+            List<DynDiscContract> packageContracts, BlockingQueue<ContractChunk> workQueue) {
+        Integer packageId = progress.getPackageId();
+        DiscountColumns columns = discountReader.fetchDiscountColumns(packageId, request.getRequestId(),
+                request.getBillPeriodEndDate());
+        log.info("Package ID: {}. Loaded {} contracts and {} discount assignments into columns.",
+                packageId, packageContracts.size(), columns.size());
+        EvaluationBatch evaluation = columnarEvaluator.evaluate(columns, request.getBillPeriodEndDate(),
+                request.getConfig());
+
+        for (List<DynDiscContract> chunk : Lists.partition(packageContracts, contractsPerChunk)) {
+            enqueueChunk(progress, chunk, Collections.emptyMap(), evaluation, workQueue);
+        }
+    }
+
+    /**
+     * Streams the package's assignments ordered by co_id and queues a chunk as soon as it holds
+     * enough contracts, so evaluation starts with the first rows and only chunks are kept in memory.
+     */
+    private void streamContractChunks(PackageProgress progress, DynDiscRequest request,
+            List<DynDiscContract> packageContracts, BlockingQueue<ContractChunk> workQueue) {
+        Integer packageId = progress.getPackageId();
+        Map<Integer, List<DynDiscContract>> pendingContracts = packageContracts.stream()
+                .collect(Collectors.groupingBy(DynDiscContract::getCoId, LinkedHashMap::new, Collectors.toList()));
+        ChunkAssembler assembler = new ChunkAssembler(progress, workQueue);
+
+        long rows = discountReader.streamDiscountsByPackage(packageId, request.getRequestId(),
+                request.getBillPeriodEndDate(), (coId, discounts) -> {
+                    List<DynDiscContract> contracts = pendingContracts.remove(coId);
+                    if (contracts == null) {
+                        log.warn("Package ID: {}. Ignoring discounts of coId={}, not pending in this package.", packageId, coId);
+                        return;
+                    }
+                    assembler.add(coId, contracts, discounts);
+                });
+
+        // Contracts without assignments are still evaluated, so they get their 'S' status and remark
+        pendingContracts.forEach((coId, contracts) -> assembler.add(coId, contracts, Collections.emptyList()));
+        assembler.flush();
+
+        log.info("Package ID: {}. Streamed {} contracts and {} discount assignments into {} chunks.",
+                packageId, packageContracts.size(), rows, assembler.chunkCount);
+    }
+
+    private void enqueueChunk(PackageProgress progress, List<DynDiscContract> contracts,
+            Map<Integer, List<DiscountRow>> discountsByCoId, EvaluationBatch evaluation,
+            BlockingQueue<ContractChunk> workQueue) {
+        int budgetRows = acquirePrefetchRows(contracts, discountsByCoId, evaluation);
+        progress.chunkQueued();
+        // Blocks while the queue is full, so loading never runs too far ahead of processing
+        Uninterruptibles.putUninterruptibly(workQueue,
+                new ContractChunk(progress, contracts, discountsByCoId, evaluation, budgetRows));
+    }
+
+    /**
+     * Blocks until the chunk's rows fit in the prefetch budget. A chunk larger than the whole
+     * budget takes all of it, so it still runs, alone.
+     */
+    private int acquirePrefetchRows(List<DynDiscContract> contracts, Map<Integer, List<DiscountRow>> discountsByCoId,
+            EvaluationBatch evaluation) {
+        if (prefetchRows == null) {
+            return 0;
+        }
+        int rows = contracts.size();
+        for (DynDiscContract contract : contracts) {
+            rows += evaluation != null ? evaluation.getColumns().rowCount(contract.getCoId())
+                    : discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList()).size();
+        }
+        int permits = Math.min(rows, prefetchMaxRows);
+        prefetchRows.acquireUninterruptibly(permits);
+        return permits;
+    }
+
+    /**
+     * Collects streamed contracts with their assignments and queues them chunk by chunk.
+     */
+    private final class ChunkAssembler {
+
+        private final PackageProgress progress;
+        private final BlockingQueue<ContractChunk> workQueue;
+        private List<DynDiscContract> contracts = new ArrayList<>();
+        private Map<Integer, List<DiscountRow>> discountsByCoId = new HashMap<>();
+        private int chunkCount;
+
+        ChunkAssembler(PackageProgress progress, BlockingQueue<ContractChunk> workQueue) {
+            this.progress = progress;
+            this.workQueue = workQueue;
+        }
+
+        void add(Integer coId, List<DynDiscContract> coIdContracts, List<DiscountRow> discounts) {
+            contracts.addAll(coIdContracts);
+            if (!discounts.isEmpty()) {
+                discountsByCoId.put(coId, discounts);
+            }
+            if (contracts.size() >= contractsPerChunk) {
+                flush();
+            }
+        }
 
-                processContractChunks(packageId, request, discountsByCoId, packageContracts);
+        void flush() {
+            if (contracts.isEmpty()) {
+                return;
+            }
+            enqueueChunk(progress, contracts, discountsByCoId, null, workQueue);
+            contracts = new ArrayList<>();
+            discountsByCoId = new HashMap<>();
+            chunkCount++;
+        }
+    }
+
+    /**
+     * Marks a package as processed, or failed if any of its chunks failed, and releases its slot.
+     */
+    private void completePackage(PackageProgress progress) {
+        Integer packageId = progress.getPackageId();
+        try {
+            if (progress.isFailed()) {
+                log.error("✗ Package ID: {} did not complete. Package will be marked as 'F' (Failed).", packageId);
+                packageRepo.updatePackageStatusAndEndDate(packageId, "F", LocalDateTime.now());
+            } else {
                 packageRepo.updatePackageStatusAndEndDate(packageId, "P", LocalDateTime.now());
                 log.info("✓ Successfully completed processing for package ID: {}", packageId);
-            } catch (Exception e) {
-                handlePackageProcessingError(packageId, e);
             }
-        }, executor);
-    }
-
-    private Map<Integer, List<DynDiscAssignDTO>> loadDiscountsByCoId(Integer packageId, DynDiscRequest request) {
-        List<DynDiscAssignDTO> assignedDiscounts = assignRepository.fetchDiscountsByPackage(
-                packageId, request.getRequestId(), request.getBillPeriodEndDate());
-        return assignedDiscounts.stream()
-                .collect(Collectors.groupingBy(dto -> dto.getCoId().intValue()));
-    }
-
-    private void handleEmptyPackage(Integer packageId) {
-        log.warn("No contracts found for package ID: {}. Marking as processed.", packageId);
-        packageRepo.updatePackageStatusAndEndDate(packageId, "P", LocalDateTime.now());
-    }
-
-	private void processContractChunks(Integer packageId, DynDiscRequest request,
-			Map<Integer, List<DynDiscAssignDTO>> discountsByCoId, List<DynDiscContract> packageContracts) {
-		List<List<DynDiscContract>> contractChunks = Lists.partition(packageContracts, contractsPerChunk);
-		log.info("Package ID: {}. Splitting {} contracts into {} chunks of size {}.", packageId,
-				packageContracts.size(), contractChunks.size(), contractsPerChunk);
-
-		Semaphore chunkSemaphore = new Semaphore(maxConcurrentChunks);
-		List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
-
-		for (List<DynDiscContract> chunk : contractChunks) {
-			try {
-				// Attempt to acquire semaphore before processing a chunk
-				log.debug("Acquiring semaphore for processing chunk of size {} in package ID: {}", chunk.size(),
-						packageId);
-				chunkSemaphore.acquireUninterruptibly();
-
-				CompletableFuture<Void> future = processContractChunk(chunk, request, discountsByCoId, packageId)
-						.whenComplete((result, ex) -> {
-							// Release semaphore after processing or on exception
-							chunkSemaphore.release();
-							if (ex != null) {
-								log.error("Error processing chunk in package ID: {}. Details: {}", packageId,
-										ex.getMessage(), ex);
-							}
-						});
-				chunkFutures.add(future);
-
-			} catch (Exception e) {
-				// 	Handle unexpected exceptions and ensure semaphore release
-				log.error(
-						"Critical error while acquiring semaphore or processing chunk for package ID: {}. Details: {}",
-						packageId, e.getMessage(), e);
-				chunkSemaphore.release();
-				throw e; // Re-throw to escalate error to the caller
-			}
-		}
-
-		// Wait for all chunks to complete processing
-		try {
-			CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0])).join();
-			log.info("All chunks successfully processed for package ID: {}", packageId);
-		} catch (Exception e) {
-			log.error("Critical error while waiting for all chunks to complete for package ID: {}. Details: {}",
-					packageId, e.getMessage(), e);
-			throw e; // Escalate to caller for global handling
-		}
-	}
-
-    private void handlePackageProcessingError(Integer packageId, Exception e) {
-        log.error("✗ Critical error processing package ID: {}. Package will be marked as 'F' (Failed).", packageId, e);
-        packageRepo.updatePackageStatusAndEndDate(packageId, "F", LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("✗ Error updating status of package ID: {}. Details: {}", packageId, e.getMessage(), e);
+        } finally {
+            progress.complete();
+        }
     }
 
-    
-    private CompletableFuture<Void> processContractChunk(
-            List<DynDiscContract> contractChunk,
-            DynDiscRequest request,
-            Map<Integer, List<DynDiscAssignDTO>> discountsByCoId,
-            Integer packageId) {
-        return CompletableFuture.runAsync(() -> {
-            log.info("→ Processing chunk of {} contracts for package ID: {}", contractChunk.size(), packageId);
-            for (DynDiscContract contract : contractChunk) {
-                try {
-                    List<DynDiscAssignDTO> discounts = discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList());
-                    contractProcessor.processContract(request, contract, discounts);
-                } catch (Exception e) {
-                    handleContractProcessingError(request.getRequestId(),contract.getCoId(), packageId, e);
+    private void processContractChunk(ContractChunk chunk, RequestRun run) {
+        PackageProgress progress = chunk.getProgress();
+        Integer packageId = progress.getPackageId();
+        try {
+            log.info("→ Processing chunk of {} contracts for package ID: {}", chunk.getContracts().size(), packageId);
+            if (isChunkTransactionMode()) {
+                for (List<DynDiscContract> contracts : Lists.partition(chunk.getContracts(), commitInterval)) {
+                    processContractsInTransaction(run, contracts, chunk.getDiscountsByCoId(), chunk.getEvaluation(), packageId);
                 }
+            } else {
+                processContractsOneByOne(run, chunk.getContracts(), chunk.getDiscountsByCoId(), chunk.getEvaluation(), packageId);
             }
             log.info("✓ Finished processing chunk for package ID: {}", packageId);
-        }, executor);
+        } catch (Exception e) {
+            log.error("Error processing chunk in package ID: {}. Details: {}", packageId, e.getMessage(), e);
+            progress.markFailed();
+        } finally {
+            if (prefetchRows != null) {
+                prefetchRows.release(chunk.getBudgetRows());
+            }
+            if (progress.chunkDone()) {
+                completePackage(progress);
+            }
+        }
+    }
+
+    private void processContractsOneByOne(RequestRun run, List<DynDiscContract> contracts,
+            Map<Integer, List<DiscountRow>> discountsByCoId, EvaluationBatch evaluation, Integer packageId) {
+        DynDiscRequest request = run.request;
+        for (DynDiscContract contract : contracts) {
+            try {
+                List<DiscountRow> discounts = discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList());
+                processContract(run, contract, discounts, evaluation);
+            } catch (Exception e) {
+                handleContractProcessingError(request.getRequestId(),contract.getCoId(), packageId, e);
+            }
+            run.limits.contractsCompleted(1);
+        }
+    }
+
+    /**
+     * Commits a group of contracts in one transaction. If the commit itself fails, nothing of the
+     * group was kept, so its contracts are processed again one by one; such retries are counted in
+     * the throughput summary. With batched OCC grants a failure while recording any contract of the
+     * group also ends here (see {@link ContractProcessor#processContractsInTransaction}).
+     * Contracts are counted once their transaction commits, or one by one by the retry.
+     */
+    private void processContractsInTransaction(RequestRun run, List<DynDiscContract> contracts,
+            Map<Integer, List<DiscountRow>> discountsByCoId, EvaluationBatch evaluation, Integer packageId) {
+        DynDiscRequest request = run.request;
+        try {
+            withDbPermit(() -> contractProcessor.processContractsInTransaction(request, contracts, discountsByCoId, evaluation,
+                    (contract, e) -> handleContractProcessingError(request.getRequestId(), contract.getCoId(), packageId, e)));
+            run.commits.increment();
+            run.limits.contractsCompleted(contracts.size());
+        } catch (Exception e) {
+            run.groupRetries.increment();
+            log.error("✗ Transaction of {} contracts failed in package ID={}: {}. Retrying contract by contract.",
+                    contracts.size(), packageId, e.getMessage(), e);
+            processContractsOneByOne(run, contracts, discountsByCoId, evaluation, packageId);
+        }
+    }
+
+    /**
+     * Runs the contract pipeline in its own transaction and records its latency.
+     */
+    private void processContract(RequestRun run, DynDiscContract contract, List<DiscountRow> discounts,
+            EvaluationBatch evaluation) {
+        long start = System.nanoTime();
+        withDbPermit(() -> contractProcessor.processContract(run.request, contract, discounts, evaluation));
+        run.commits.increment();
+        metrics.recordContract(System.nanoTime() - start);
+    }
+
+    /**
+     * Runs DB-bound work; in virtual mode a DB permit is held for the duration of the call.
+     */
+    private void withDbPermit(Runnable work) {
+        if (!isVirtualMode()) {
+            work.run();
+            return;
+        }
+        dbPermits.acquireUninterruptibly();
+        try {
+            work.run();
+        } finally {
+            dbPermits.release();
+        }
     }
     
     
+    /**
+     * Concurrency limits and throughput counters of one request run. Each run has its own, so a
+     * run started next to another one (a resume during a new request) does not reset or skew them.
+     * Its limits count the processed contracts, which also drive the adaptive controller.
+     */
+    private static final class RequestRun {
+
+        private final DynDiscRequest request;
+        private final ConcurrencyLimits limits;
+        private final LongAdder commits = new LongAdder();
+        private final LongAdder groupRetries = new LongAdder(); // Chunk transactions redone contract by contract
+
+        RequestRun(DynDiscRequest request, ConcurrencyLimits limits) {
+            this.request = request;
+            this.limits = limits;
+        }
+    }
+
     private void handleContractProcessingError(Integer requestId, Integer coId, Integer packageId, Exception e) {
         log.error("✗ Error processing contract coId={} in package ID={}: {}", coId, packageId, e.getMessage(), e);
         String remark = String.format("Error processing contract. Reason: %s.", e != null ? e.getMessage() : "Unknown error");
@@ -0,0 +1,25 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.time.LocalDateTime;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One adjustment made by the {@link AdaptiveConcurrencyController}, with the signals it was based on.
+ */
+@Value
+@Builder
+public class ConcurrencyDecision {
+
+	LocalDateTime time;
+	Integer requestId;
+	String action; // INCREASE, DECREASE or HOLD
+	String reason;
+	int packageLimit;
+	int chunkLimit;
+	int threadsAwaitingConnection;
+	double contractP95Ms;
+	double grantP95Ms;
+	double contractsPerSecond;
+}
@@ -0,0 +1,59 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * Package and chunk limits of one request run, handed out by {@link AdaptiveConcurrencyController#begin}.
+ * Each run has its own limits, throughput counter and AIMD state, so runs in parallel are
+ * adjusted independently and ending one does not stop the control of another.
+ */
+public class ConcurrencyLimits {
+
+	@Getter
+	private final Integer requestId;
+	@Getter
+	private final AdjustableLimit packageLimit;
+	@Getter
+	private final AdjustableLimit chunkLimit;
+	@Getter
+	private final int workers; // Chunk workers started, the upper bound of the chunk limit
+	@Getter
+	private final int maxPackages; // Upper bound of the package limit
+	private final int chunksPerPackage;
+	private final LongAdder completedContracts = new LongAdder();
+
+	// AIMD state, guarded by the controller
+	long lastTick;
+	long lastCompleted;
+	double lastThroughput;
+	double baselineContractP95;
+	double baselineGrantP95;
+
+	ConcurrencyLimits(Integer requestId, int packages, int chunksPerPackage, int workers) {
+		this.requestId = requestId;
+		this.chunksPerPackage = chunksPerPackage;
+		this.workers = workers;
+		this.maxPackages = (workers + chunksPerPackage - 1) / chunksPerPackage;
+		this.packageLimit = new AdjustableLimit(packages);
+		this.chunkLimit = new AdjustableLimit(packages * chunksPerPackage);
+		this.lastTick = System.nanoTime();
+	}
+
+	/**
+	 * Counts contracts finished by the run, on every processing path; the controller's throughput signal.
+	 */
+	public void contractsCompleted(int count) {
+		completedContracts.add(count);
+	}
+
+	public long getCompletedContracts() {
+		return completedContracts.sum();
+	}
+
+	// Package limit following the given chunk limit
+	int packagesFor(int chunks) {
+		return Math.max(1, Math.min(maxPackages, (chunks + chunksPerPackage - 1) / chunksPerPackage));
+	}
+}
@@ -0,0 +1,31 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.util.List;
+import java.util.Map;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.processor.service.evaluation.EvaluationBatch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A slice of one package's contracts, queued on the request-wide work queue
+ * and picked up by whichever chunk worker is free.
+ */
+@Getter
+@RequiredArgsConstructor
+class ContractChunk {
+
+	// Signals a chunk worker to stop once the request has no more packages
+	static final ContractChunk END = new ContractChunk(null, List.of(), Map.of(), null, 0);
+
+	private final PackageProgress progress;
+	private final List<DynDiscContract> contracts;
+	private final Map<Integer, List<DiscountRow>> discountsByCoId;
+	// Results of the columnar engine for the package; null when contracts are evaluated one by one
+	private final EvaluationBatch evaluation;
+	// Prefetch budget held by the chunk until it is processed
+	private final int budgetRows;
+}
@@ -2,24 +2,36 @@ package com.atos.dynamicdiscount.processor.manager;
 
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.atos.dynamicdiscount.model.dto.DynDiscAssignDTO;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
 import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
 import com.atos.dynamicdiscount.model.entity.DynDiscContract;
 import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
 import com.atos.dynamicdiscount.processor.service.evaluation.DiscountEvaluationService;
+import com.atos.dynamicdiscount.processor.service.evaluation.EvaluationBatch;
 import com.atos.dynamicdiscount.processor.service.granting.DiscountGrantingService;
+import com.atos.dynamicdiscount.processor.service.granting.GrantOutboxService;
 import com.atos.dynamicdiscount.processor.service.logging.DiscountLogService;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -33,13 +45,25 @@ public class ContractProcessor {
 
 	private final DiscountEvaluationService evalService;
 	private final DiscountGrantingService grantService;
+	private final GrantOutboxService grantOutbox;
 	private final DiscountLogService logService;
+	private final PlatformTransactionManager transactionManager;
+	private final ProcessingMetrics metrics;
 
-	
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@PostConstruct
+	void init() {
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
 
 	
 	
 	// pipeline for a single contract: 1) evaluate 2) grant 3) record
+	// With the columnar engine, the evaluation is taken from the package's EvaluationBatch
 	
     @Retryable(
             value = { SQLException.class ,PersistenceException.class},
@@ -47,24 +71,128 @@ public class ContractProcessor {
             backoff = @Backoff(delay = 2000, multiplier = 2))
 	@Transactional
 	public void processContract(DynDiscRequest request, DynDiscContract contract,
-			List<DynDiscAssignDTO> discounts) {
+			List<DiscountRow> discounts, EvaluationBatch evaluation) {
+		runPipeline(request, contract, discounts, evaluation);
+	}
+
+	/**
+	 * Runs the pipeline for a group of contracts in one transaction, each contract behind its own
+	 * savepoint. A failing contract is rolled back to its savepoint and handed to {@code onFailure}
+	 * inside the transaction, along with its buffered lifecycle writes; the others are committed
+	 * together. With batched OCC grants, only evaluation failures are isolated per contract: a
+	 * recording failure fails the whole group, which the caller then processes again contract by contract.
+	 */
+	public void processContractsInTransaction(DynDiscRequest request, List<DynDiscContract> contracts,
+			Map<Integer, List<DiscountRow>> discountsByCoId, EvaluationBatch evaluation,
+			BiConsumer<DynDiscContract, Exception> onFailure) {
+		if (grantService.isBatchGrantEnabled()) {
+			transactionTemplate.executeWithoutResult(
+					status -> processWithBatchGrant(request, contracts, discountsByCoId, evaluation, onFailure));
+			return;
+		}
+		transactionTemplate.executeWithoutResult(status -> {
+			for (DynDiscContract contract : contracts) {
+				long start = System.nanoTime();
+				Object savepoint = status.createSavepoint();
+				Object bufferSavepoint = logService.createSavepoint(); // Batched writes are not undone by the savepoint
+				try {
+					runPipeline(request, contract, discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList()),
+							evaluation);
+					entityManager.flush(); // Surface write errors while the savepoint can still undo them
+					status.releaseSavepoint(savepoint);
+				} catch (Exception e) {
+					status.rollbackToSavepoint(savepoint);
+					logService.rollbackToSavepoint(bufferSavepoint);
+					onFailure.accept(contract, e);
+				} finally {
+					entityManager.clear(); // Everything kept is flushed; keeps the context small over the interval
+				}
+				metrics.recordContract(System.nanoTime() - start);
+			}
+		});
+	}
+
+	/**
+	 * Evaluates the whole group first, grants all of its OCCs in one batch (or queues them in
+	 * outbox mode), then records each contract. Evaluation does not write, so a failing
+	 * evaluation only drops its contract; a failure while recording rolls back the whole group,
+	 * OCCs included, and is thrown to the caller. There is deliberately no savepoint per recorded
+	 * contract: its OCC was sent in the group's batch before any recording, so rolling back only
+	 * its recording would commit the OCC of a contract marked 'F', granted a second time on resume.
+	 */
+	private void processWithBatchGrant(DynDiscRequest request, List<DynDiscContract> contracts,
+			Map<Integer, List<DiscountRow>> discountsByCoId, EvaluationBatch evaluation,
+			BiConsumer<DynDiscContract, Exception> onFailure) {
+		long start = System.nanoTime();
+		LocalDateTime cutoff = request.getBillPeriodEndDate();
+
+		// 1) Evaluate every contract of the group
+		List<DynDiscGrantEvalDTO> evaluated = new ArrayList<>(contracts.size());
+		for (DynDiscContract contract : contracts) {
+			try {
+				evaluated.add(evaluate(request, contract,
+						discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList()), evaluation));
+			} catch (Exception e) {
+				onFailure.accept(contract, e);
+			}
+		}
+
+		// 2) Grant (or queue) the OCCs of all contracts with valid grant and eval data
+		List<DynDiscGrantEvalDTO> grantable = evaluated.stream().filter(ContractProcessor::isGrantable).toList();
+		if (grantOutbox.isOutboxMode()) {
+			grantable.forEach(result -> grantOutbox.enqueue(result.getDynDiscEvalHistory(), result.getDynDiscGrantHistory()));
+		} else {
+			grantService.grantDiscounts(grantable);
+		}
+
+		// 3) Record the discount lifecycle events
+		for (DynDiscGrantEvalDTO discGrantEval : evaluated) {
+			logService.recordDiscountLifecycle(discGrantEval, cutoff);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		long perContract = (System.nanoTime() - start) / Math.max(1, contracts.size());
+		contracts.forEach(contract -> metrics.recordContract(perContract));
+		log.info("< {} contracts processed with one OCC grant batch", contracts.size());
+	}
+
+	private static boolean isGrantable(DynDiscGrantEvalDTO discGrantEval) {
+		return discGrantEval != null && discGrantEval.getDynDiscGrantHistory() != null
+				&& discGrantEval.getDynDiscEvalHistory() != null;
+	}
+
+	private DynDiscGrantEvalDTO evaluate(DynDiscRequest request, DynDiscContract contract, List<DiscountRow> discounts,
+			EvaluationBatch evaluation) {
+		return evaluation != null ? evaluation.result(contract)
+				: evalService.evaluateDiscounts(contract, discounts, request.getBillPeriodEndDate(), request.getConfig());
+	}
+
+	private void runPipeline(DynDiscRequest request, DynDiscContract contract, List<DiscountRow> discounts,
+			EvaluationBatch evaluation) {
 
 		Integer coId = contract.getCoId();
 		LocalDateTime cutoff = request.getBillPeriodEndDate();
-		String assignIds = discounts.stream().map(DynDiscAssignDTO::getAssignId).map(Object::toString)
+		String assignIds = discounts.stream().map(row -> Long.toString(row.assignId()))
 				.collect(Collectors.joining(", "));
 		
 				log.info("-------------- Processing coId={} --------------", coId);
-				log.info("> coId={} : evaluating {} discounts (AssignIds={})", coId, discounts.size(), assignIds);
+				if (evaluation == null) {
+					log.info("> coId={} : evaluating {} discounts (AssignIds={})", coId, discounts.size(), assignIds);
+				}
 							
 				// 1) Evaluate discounts for the contract
-				DynDiscGrantEvalDTO discGrantEval = evalService.evaluateDiscounts(contract, discounts, cutoff);
+				DynDiscGrantEvalDTO discGrantEval = evaluate(request, contract, discounts, evaluation);
 
 				// 2) Grant discounts if evaluation produced valid grant and eval data
-				if (discGrantEval != null && discGrantEval.getDynDiscGrantHistory() != null && discGrantEval.getDynDiscEvalHistory() != null) {
+				if (isGrantable(discGrantEval)) {
 					DynDiscGrantHistory grant = discGrantEval.getDynDiscGrantHistory();
 					DynDiscEvalHistory eval = discGrantEval.getDynDiscEvalHistory();
-					grantService.grantDiscount(eval, grant);
+					if (grantOutbox.isOutboxMode()) {
+						grantOutbox.enqueue(eval, grant); // Granted later by the grant workers
+					} else {
+						grantService.grantDiscount(eval, grant);
+					}
 				} else {
 					log.warn("! coId={} : Discount grant skipped", coId);
 				}
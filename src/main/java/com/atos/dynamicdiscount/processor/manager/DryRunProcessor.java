@@ -0,0 +1,222 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.DynDiscConfigurations;
+import com.atos.dynamicdiscount.processor.service.dryrun.DryRunOutcome;
+import com.atos.dynamicdiscount.processor.service.dryrun.DryRunResult;
+import com.atos.dynamicdiscount.processor.service.dryrun.DryRunSink;
+import com.atos.dynamicdiscount.processor.service.dryrun.FileDryRunSink;
+import com.atos.dynamicdiscount.processor.service.dryrun.MemoryDryRunSink;
+import com.atos.dynamicdiscount.processor.service.evaluation.DiscountEvaluationService;
+import com.atos.dynamicdiscount.processor.service.loading.PackageDiscountReader;
+import com.atos.dynamicdiscount.processor.service.request.DiscountRequestService;
+import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscPackageRepository;
+import com.atos.dynamicdiscount.util.LatencyRecorder;
+import com.google.common.collect.Lists;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the fetch and evaluation of a bill cycle without granting anything: the request is
+ * registered and read in one transaction that is always rolled back, no OCC is created and no
+ * history is written. The computed grants go to a CSV file or an in-memory sink, and the run
+ * ends with a report of throughput, latency percentiles and outcomes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DryRunProcessor {
+
+    // Latency samples kept for the percentiles; larger runs report over the most recent contracts
+    private static final int LATENCY_WINDOW = 1 << 16;
+
+    private final DiscountRequestService requestService;
+    private final DynDiscPackageRepository packageRepo;
+    private final DynDiscContractRepository contractRepo;
+    private final PackageDiscountReader discountReader;
+    private final DiscountEvaluationService evalService;
+    private final DynDiscConfigurations configurations;
+    private final PlatformTransactionManager transactionManager;
+    @Qualifier("dryRunTaskExecutor")
+    private final ThreadPoolTaskExecutor dryRunExecutor;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // CSV file receiving the computed grants; empty keeps them in memory
+    @Value("${processing.dryrun.output:}")
+    private String output;
+
+    // Results kept by the in-memory sink
+    @Value("${processing.dryrun.memory.max.results:100000}")
+    private int maxMemoryResults;
+
+    @Value("${processing.contracts.per.chunk:1000}")
+    private int contractsPerChunk;
+
+    private volatile DryRunReport lastReport;
+    private volatile MemoryDryRunSink lastMemorySink;
+
+    /**
+     * Evaluates the given bill cycle and returns the report, or null when it has no eligible contracts.
+     */
+    public DryRunReport run(String billCycle, LocalDateTime cutoffDate) {
+        log.info("→ Dry run for bill cycle '{}' and cutoff date '{}': no OCC is granted and nothing is committed.",
+                billCycle, cutoffDate);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try (DryRunSink sink = createSink()) {
+            DryRunReport report = transactionTemplate.execute(status -> {
+                status.setRollbackOnly(); // The registered request only lives in this transaction
+                return evaluate(billCycle, cutoffDate, sink);
+            });
+            if (report != null) {
+                lastReport = report;
+                logReport(report);
+            }
+            return report;
+        }
+    }
+
+    public DryRunReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Grants kept by the last in-memory dry run; empty when it wrote to a file.
+     */
+    public List<DryRunResult> getLastResults() {
+        MemoryDryRunSink sink = lastMemorySink;
+        return sink != null ? sink.getResults() : List.of();
+    }
+
+    private DryRunSink createSink() {
+        if (output == null || output.isBlank()) {
+            MemoryDryRunSink sink = new MemoryDryRunSink(maxMemoryResults);
+            lastMemorySink = sink;
+            return sink;
+        }
+        lastMemorySink = null;
+        return new FileDryRunSink(Path.of(output));
+    }
+
+    private DryRunReport evaluate(String billCycle, LocalDateTime cutoffDate, DryRunSink sink) {
+        LocalDateTime startTime = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        DynDiscRequest request = requestService.registerNewRequest(billCycle, cutoffDate);
+        if (request == null) {
+            log.warn("! Dry run: no eligible contracts for bill cycle: {}", billCycle);
+            return null;
+        }
+        Integer requestId = request.getRequestId();
+        request.setConfig(configurations.getSnapshot());
+        ConfigSnapshot config = request.getConfig();
+        List<Integer> packageIds = packageRepo.fetchAvailablePackagesWithStatus(requestId, "I");
+
+        LatencyRecorder latency = new LatencyRecorder(LATENCY_WINDOW);
+        Map<DryRunOutcome, LongAdder> outcomes = new EnumMap<>(DryRunOutcome.class);
+        for (DryRunOutcome outcome : DryRunOutcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+        long contracts = 0;
+        long loadNanos = 0;
+        long evaluationNanos = 0;
+
+        for (Integer packageId : packageIds) {
+            long loadStart = System.nanoTime();
+            List<DynDiscContract> packageContracts = contractRepo.fetchContractsForPackage(packageId, requestId);
+            Map<Integer, List<DiscountRow>> discountsByCoId = discountReader.fetchDiscountsByCoId(packageId, requestId, cutoffDate);
+            entityManager.clear(); // Evaluation sets the contract status; it must not be flushed
+            long evaluationStart = System.nanoTime();
+            loadNanos += evaluationStart - loadStart;
+
+            // Evaluation reads only the in-memory configuration, so chunks run in parallel
+            CompletableFuture.allOf(Lists.partition(packageContracts, contractsPerChunk).stream()
+                    .map(chunk -> CompletableFuture.runAsync(
+                            () -> evaluateChunk(chunk, discountsByCoId, cutoffDate, config, sink, latency, outcomes), dryRunExecutor))
+                    .toArray(CompletableFuture[]::new)).join();
+
+            evaluationNanos += System.nanoTime() - evaluationStart;
+            contracts += packageContracts.size();
+            log.info("Dry run: package ID {} evaluated ({} contracts).", packageId, packageContracts.size());
+        }
+
+        long evaluationMs = evaluationNanos / 1_000_000;
+        return DryRunReport.builder()
+                .billCycle(billCycle)
+                .cutoffDate(cutoffDate)
+                .startTime(startTime)
+                .packages(packageIds.size())
+                .contracts(contracts)
+                .durationMs((System.nanoTime() - start) / 1_000_000)
+                .loadMs(loadNanos / 1_000_000)
+                .evaluationMs(evaluationMs)
+                .contractsPerSecond(evaluationMs > 0 ? contracts * 1000.0 / evaluationMs : contracts)
+                .p50Ms(latency.percentileMillis(50))
+                .p95Ms(latency.percentileMillis(95))
+                .p99Ms(latency.percentileMillis(99))
+                .maxMs(latency.percentileMillis(100))
+                .outcomes(Collections.unmodifiableMap(outcomes.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum(),
+                                (a, b) -> a, () -> new EnumMap<>(DryRunOutcome.class)))))
+                .output(sink.describe())
+                .build();
+    }
+
+    private void evaluateChunk(List<DynDiscContract> chunk, Map<Integer, List<DiscountRow>> discountsByCoId,
+            LocalDateTime cutoffDate, ConfigSnapshot config, DryRunSink sink, LatencyRecorder latency,
+            Map<DryRunOutcome, LongAdder> outcomes) {
+        for (DynDiscContract contract : chunk) {
+            long start = System.nanoTime();
+            DynDiscGrantEvalDTO result = evalService.evaluateDiscounts(contract,
+                    discountsByCoId.getOrDefault(contract.getCoId(), Collections.emptyList()), cutoffDate, config);
+            long nanos = System.nanoTime() - start;
+            latency.record(nanos);
+
+            DryRunResult dryRunResult = DryRunResult.of(result, nanos);
+            outcomes.get(dryRunResult.getOutcome()).increment();
+            sink.write(dryRunResult);
+        }
+    }
+
+    private void logReport(DryRunReport report) {
+        log.info("========== Dry Run Report ==========");
+        log.info("Bill cycle '{}', cutoff date '{}': {} contracts in {} packages, {} ms in total.",
+                report.getBillCycle(), report.getCutoffDate(), report.getContracts(), report.getPackages(),
+                report.getDurationMs());
+        log.info("Loading: {} ms. Evaluation: {} ms ({} contracts/s).", report.getLoadMs(),
+                report.getEvaluationMs(), String.format("%.1f", report.getContractsPerSecond()));
+        log.info("Evaluation latency per contract: p50={} ms, p95={} ms, p99={} ms, max={} ms.",
+                String.format("%.3f", report.getP50Ms()), String.format("%.3f", report.getP95Ms()),
+                String.format("%.3f", report.getP99Ms()), String.format("%.3f", report.getMaxMs()));
+        report.getOutcomes().forEach((outcome, count) -> log.info("Outcome {}: {} ({}%)", outcome, count,
+                String.format("%.1f", report.getContracts() > 0 ? count * 100.0 / report.getContracts() : 0)));
+        log.info("Results: {}", report.getOutput());
+        log.info("====================================");
+    }
+}
@@ -0,0 +1,33 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import com.atos.dynamicdiscount.processor.service.dryrun.DryRunOutcome;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Summary of a dry run: evaluation throughput, per-contract latency and outcome distribution.
+ */
+@Value
+@Builder
+public class DryRunReport {
+
+	String billCycle;
+	LocalDateTime cutoffDate;
+	LocalDateTime startTime;
+	int packages;
+	long contracts;
+	long durationMs; // Whole run, registration and loading included
+	long loadMs; // Reading contracts and assignments
+	long evaluationMs; // Evaluating them
+	double contractsPerSecond; // Over the evaluation time only
+	double p50Ms;
+	double p95Ms;
+	double p99Ms;
+	double maxMs;
+	Map<DryRunOutcome, Long> outcomes;
+	String output;
+}
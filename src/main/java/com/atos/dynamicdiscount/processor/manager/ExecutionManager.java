@@ -29,6 +29,9 @@ public class ExecutionManager {
     
     @Autowired
     private  DynDiscConfigurations configurations;
+
+    @Autowired
+    private DryRunProcessor dryRunProcessor;
     
     
    
@@ -37,6 +40,7 @@ public class ExecutionManager {
  
     private static final String NEW_REQUEST = "c"; // Mode for creating a new request
     private static final String RESUME_REQUEST = "r"; // Mode for resuming an existing request
+    private static final String DRY_RUN = "d"; // Mode for evaluating a bill cycle without granting or writing
     
 
     /**
@@ -51,6 +55,8 @@ public class ExecutionManager {
                 processNewRequest(inputValue);
             } else if (RESUME_REQUEST.equals(mode)) {
                 processResumeRequest(inputValue);
+            } else if (DRY_RUN.equals(mode)) {
+                processDryRun(inputValue);
             } else {
                 throw new IllegalArgumentException("Invalid mode: " + mode);
             }
@@ -85,8 +91,8 @@ public class ExecutionManager {
             return;
         }
 
-        // refresh configurations
-        configurations.refreshConfigurations();
+        // refresh configurations, unless the background poller keeps them current
+        configurations.refreshBeforeRequest();
 
         
         // Register and process the new request
@@ -102,6 +108,30 @@ public class ExecutionManager {
     }
 
 
+    /**
+     * Handles a dry run: evaluates the bill cycle like a new request, but nothing is granted or committed.
+     */
+    private void processDryRun(String billCycle) {
+        log.info("Processing dry run for bill cycle: {}", billCycle);
+
+        BillCycle billcycle = billCycleService.validateBillCycle(billCycle);
+        if (billcycle == null) {
+            return;
+        }
+
+        LocalDateTime cutoff = billCycleService.fetchCutoffDate(billCycle);
+        if (cutoff == null) {
+            return;
+        }
+
+        configurations.refreshBeforeRequest();
+
+        DryRunReport report = dryRunProcessor.run(billCycle, cutoff);
+        if (report == null) {
+            log.warn("! No dry run performed for bill cycle: {}", billCycle);
+        }
+    }
+
     /**
      * Handles resuming an existing request.
      */
@@ -140,6 +170,10 @@ public class ExecutionManager {
                     log.info("√ Processing resumed for request ID {}. Total contracts to process: {}", requestId, updated);
                     processRequest(request);
                     log.info("√ Successfully completed processing for request ID {}.", requestId);
+                } else if (requestService.resumePendingGrants(requestId)) {
+                    // Only contracts with a grant pending in the outbox ('G') are left
+                    log.info("√ Processing resumed for request ID {} to grant its pending outbox grants.", requestId);
+                    processRequest(request);
                 } else {
                     log.warn("! SKIPPING processing for request ID {}: No contracts found with status 'I'.", requestId);
                 }
@@ -158,6 +192,10 @@ public class ExecutionManager {
     
     private void processRequest(DynDiscRequest request) {
         log.info("Starting processing for request ID: {}", request.getRequestId());
+
+        // Pin the current configuration, so a refresh during the run does not change its rules
+        request.setConfig(configurations.getSnapshot());
+        log.info("Request ID: {} uses configuration version {}.", request.getRequestId(), request.getConfig().getVersion());
         
         try {
             
@@ -172,8 +210,18 @@ public class ExecutionManager {
             log.info("Completed discount processing for request ID: {}", request.getRequestId());
         } catch (Exception e) {
             log.error("Error processing request ID: {}. Details: {}", request.getRequestId(), e.getMessage(), e);
+            // Leave the request resumable instead of 'W', which blocks new requests and resumes
+            markRequestFailed(request.getRequestId());
             throw e; // Re-throw the exception if required
         } 
     }
 
+    private void markRequestFailed(Integer requestId) {
+        try {
+            requestService.markRequestFailed(requestId);
+        } catch (Exception e) {
+            log.error("X Unable to mark request ID: {} as 'F'. Details: {}", requestId, e.getMessage(), e);
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+/**
+ * Tracks the outstanding chunks of one package while they are spread over the
+ * request-wide work queue, so the package is completed exactly once, by whoever
+ * finishes its last unit of work. The loader holds one unit until all chunks are queued.
+ */
+class PackageProgress {
+
+	@Getter
+	private final Integer packageId;
+	private final AtomicInteger pendingChunks;
+	private final Runnable onComplete;
+	private volatile boolean failed;
+
+	PackageProgress(Integer packageId, Runnable onComplete) {
+		this.packageId = packageId;
+		this.pendingChunks = new AtomicInteger(1); // Held by the loader
+		this.onComplete = onComplete;
+	}
+
+	void chunkQueued() {
+		pendingChunks.incrementAndGet();
+	}
+
+	void markFailed() {
+		failed = true;
+	}
+
+	boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Records a finished chunk (or the loader finishing) and returns true if it was the
+	 * last outstanding unit of the package.
+	 */
+	boolean chunkDone() {
+		return pendingChunks.decrementAndGet() == 0;
+	}
+
+	/**
+	 * Releases the package slot held on the request.
+	 */
+	void complete() {
+		onComplete.run();
+	}
+}
@@ -0,0 +1,39 @@
+package com.atos.dynamicdiscount.processor.service.dryrun;
+
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+
+/**
+ * Outcome of evaluating one contract, as counted in the dry-run report.
+ */
+public enum DryRunOutcome {
+
+	GRANTED, // Regular offer discount
+	GRANTED_FREE_MONTH,
+	GRANTED_SPECIAL_MONTH,
+	GRANTED_CAPPED, // Discount capped to the offer or ALO price
+	NO_ASSIGNMENT, // No assignment active at the cutoff date
+	NO_VALID_DISCOUNT, // Every assignment rejected by the validator
+	FAILED;
+
+	public static DryRunOutcome of(DynDiscGrantEvalDTO result) {
+		if ("F".equals(result.getDynDiscContract().getStatus())) {
+			return FAILED;
+		}
+		DynDiscGrantHistory grant = result.getDynDiscGrantHistory();
+		if (grant == null) {
+			String remark = result.getDynDiscContract().getRemark();
+			return remark != null && remark.startsWith("No valid assignment") ? NO_ASSIGNMENT : NO_VALID_DISCOUNT;
+		}
+		if (Boolean.TRUE.equals(grant.getFreeMonth())) {
+			return GRANTED_FREE_MONTH;
+		}
+		if (Boolean.TRUE.equals(grant.getSpecialMonth())) {
+			return GRANTED_SPECIAL_MONTH;
+		}
+		if (Boolean.TRUE.equals(grant.getOfferCapped()) || Boolean.TRUE.equals(grant.getAloCapped())) {
+			return GRANTED_CAPPED;
+		}
+		return GRANTED;
+	}
+}
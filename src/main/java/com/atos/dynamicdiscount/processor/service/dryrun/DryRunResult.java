@@ -0,0 +1,56 @@
+package com.atos.dynamicdiscount.processor.service.dryrun;
+
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Grant computed for one contract by a dry run; nothing of it is written to the database.
+ */
+@Value
+@Builder
+public class DryRunResult {
+
+	static final String CSV_HEADER = "co_id;customer_id;outcome;assign_id;apply_count;last_apply;offer_disc_amount;alo_disc_amount;eval_us;remark";
+
+	Integer coId;
+	Integer customerId;
+	DryRunOutcome outcome;
+	Long assignId;
+	Integer applyCount;
+	Boolean lastApply;
+	Float offerDiscAmount;
+	Float aloDiscAmount;
+	long evalMicros;
+	String remark;
+
+	public static DryRunResult of(DynDiscGrantEvalDTO result, long evalNanos) {
+		DynDiscGrantHistory grant = result.getDynDiscGrantHistory();
+		DryRunResultBuilder builder = DryRunResult.builder()
+				.coId(result.getDynDiscContract().getCoId())
+				.customerId(result.getDynDiscContract().getCustomerId())
+				.outcome(DryRunOutcome.of(result))
+				.evalMicros(evalNanos / 1_000)
+				.remark(result.getDynDiscContract().getRemark());
+		if (grant != null) {
+			builder.assignId(grant.getAssignId())
+					.applyCount(grant.getCurrentApplyCount())
+					.lastApply(grant.getLastApply())
+					.offerDiscAmount(grant.getOfferDiscAmount())
+					.aloDiscAmount(grant.getAloDiscAmount());
+		}
+		return builder.build();
+	}
+
+	String toCsv() {
+		return String.join(";", str(coId), str(customerId), outcome.name(), str(assignId), str(applyCount),
+				str(lastApply), str(offerDiscAmount), str(aloDiscAmount), Long.toString(evalMicros),
+				remark == null ? "" : remark.replace(';', ',').replace('\n', ' '));
+	}
+
+	private static String str(Object value) {
+		return value == null ? "" : value.toString();
+	}
+}
@@ -0,0 +1,17 @@
+package com.atos.dynamicdiscount.processor.service.dryrun;
+
+/**
+ * Destination of the grants computed by a dry run. Written to by several evaluation threads.
+ */
+public interface DryRunSink extends AutoCloseable {
+
+	void write(DryRunResult result);
+
+	/**
+	 * Short description for the report, e.g. the output file.
+	 */
+	String describe();
+
+	@Override
+	void close();
+}
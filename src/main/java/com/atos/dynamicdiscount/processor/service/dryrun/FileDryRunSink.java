@@ -0,0 +1,56 @@
+package com.atos.dynamicdiscount.processor.service.dryrun;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams the dry-run grants to a local CSV file, one line per contract.
+ */
+public class FileDryRunSink implements DryRunSink {
+
+	private final Path file;
+	private final BufferedWriter writer;
+
+	public FileDryRunSink(Path file) {
+		this.file = file;
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+			writer.write(DryRunResult.CSV_HEADER);
+			writer.newLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open dry-run output " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized void write(DryRunResult result) {
+		try {
+			writer.write(result.toCsv());
+			writer.newLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write dry-run output " + file, e);
+		}
+	}
+
+	@Override
+	public String describe() {
+		return "file " + file.toAbsolutePath();
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot close dry-run output " + file, e);
+		}
+	}
+}
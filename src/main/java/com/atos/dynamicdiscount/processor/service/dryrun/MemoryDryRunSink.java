@@ -0,0 +1,42 @@
+package com.atos.dynamicdiscount.processor.service.dryrun;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the dry-run grants in memory, up to a maximum number of results; later ones are
+ * only counted in the report.
+ */
+public class MemoryDryRunSink implements DryRunSink {
+
+	private final int maxResults;
+	private final List<DryRunResult> results = new ArrayList<>();
+	private long dropped;
+
+	public MemoryDryRunSink(int maxResults) {
+		this.maxResults = maxResults;
+	}
+
+	@Override
+	public synchronized void write(DryRunResult result) {
+		if (results.size() < maxResults) {
+			results.add(result);
+		} else {
+			dropped++;
+		}
+	}
+
+	public synchronized List<DryRunResult> getResults() {
+		return List.copyOf(results);
+	}
+
+	@Override
+	public synchronized String describe() {
+		return "memory (" + results.size() + " kept" + (dropped > 0 ? ", " + dropped + " dropped" : "") + ")";
+	}
+
+	@Override
+	public void close() {
+		// Results stay available until the next dry run
+	}
+}
@@ -1,22 +1,16 @@
 
 package com.atos.dynamicdiscount.processor.service.evaluation;
 
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.List;
-import java.util.Optional;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.atos.dynamicdiscount.model.dto.DynDiscAssignDTO;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
 import com.atos.dynamicdiscount.model.entity.DynDiscConf;
 import com.atos.dynamicdiscount.model.entity.DynDiscContract;
-import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
 import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
-import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
-import com.atos.dynamicdiscount.processor.config.DynDiscConfigurations;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.MonthSchedule;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,78 +23,46 @@ public class DiscountCalculator {
 	@Value("${spring.datasource.username:DYN_DISC}")
 	private String username;
 
-    private final DynDiscConfigurations cfg;
+    private final DiscountMemo memo;
 
     /**
      * Extracted all discount-amount computation (free/special/capping) logic.
+     * Uses the configuration and offer the validator resolved for the assignment, and the month
+     * schedules of the same configuration snapshot.
      */
-    public DynDiscGrantHistory compute(DynDiscContract contract, DynDiscAssignDTO dto) {
-        long assignId = dto.getAssignId().longValue();
+    public DynDiscGrantHistory compute(DynDiscContract contract, ValidationOutcome resolved, ConfigSnapshot cfg) {
+        DiscountRow dto = resolved.assignment();
+        long assignId = dto.assignId();
         log.debug("✓ AssignId {}: Starting discount computation...", assignId);
 
-        DynDiscOffer offer = findOffer(dto)
-            .orElseThrow(() -> new IllegalStateException(
-                "Offer missing for DiscId=" + dto.getDiscId()));
-
-        DynDiscConf conf = cfg.getDynDiscConfMap().get(dto.getDiscId().intValue());
-        int monthNo = Optional.ofNullable(dto.getApplyCount().intValue()).map(Integer::intValue).orElse(0) + 1;
-        boolean aloInd = conf.getAloDiscInd();
-        float baseOffer = dto.getOfferPrice() != null ? dto.getOfferPrice().floatValue() : 0.0f;
-        float baseAlo   = dto.getAloPrice() != null ? dto.getAloPrice().floatValue() : 0.0f;
-
-
-        // Determine discount amounts
-        boolean isFree    = offer.getFreeMonthInd()
-                             && cfg.getDynDiscFreeMonthMap()
-                                   .containsKey(new DynDiscFreeMonthId(offer.getOfferId(), monthNo));
-        boolean isSpecial = offer.getSpecialMonthInd()
-                             && cfg.getDynDiscSpecialMonthMap()
-                                   .containsKey(new DynDiscSpecialMonthId(offer.getOfferId(), monthNo));
-
-        float discAmt = 0f, aloAmt = 0f;
-        if (isFree) {
-            log.debug("Free month: AssignId {}", assignId);
-            discAmt = baseOffer;
-            aloAmt  = aloInd ? baseAlo : 0f;
-        } else if (isSpecial) {
-            log.debug("Special month: AssignId {}", assignId);
-            discAmt = cfg.getDynDiscSpecialMonthMap()
-                         .get(new DynDiscSpecialMonthId(offer.getOfferId(), monthNo))
-                         .getOfferDiscAmt();
-            aloAmt  = aloInd 
-                     ? cfg.getDynDiscSpecialMonthMap()
-                          .get(new DynDiscSpecialMonthId(offer.getOfferId(), monthNo))
-                          .getAloDiscAmt()
-                     : 0f;
-        } else {
-            discAmt = offer.getOfferDiscAmt();
-            aloAmt  = aloInd ? offer.getAloDiscAmt(): 0f;
+        DynDiscOffer offer = resolved.offer();
+        if (offer == null) {
+            throw new IllegalStateException("Offer missing for DiscId=" + dto.discId());
         }
 
-        boolean offerCapped = capAndLog("Offer price", discAmt, baseOffer);
-        if (offerCapped) discAmt = baseOffer;
-
-        boolean aloCapped = aloInd && capAndLog("ALO price", aloAmt, baseAlo);
-        if (aloCapped) aloAmt = baseAlo;
+        DynDiscConf conf = resolved.conf();
+        int monthNo = monthNo(dto.applyCount());
+        float baseOffer = basePrice(dto.offerPrice());
+        float baseAlo   = basePrice(dto.aloPrice());
 
-        boolean isLast = conf.getDuration() != null 
-                         && conf.getDuration() != -1 
-                         && monthNo == conf.getDuration();
+        // The amounts only depend on the offer, month and prices, so identical assignments share them
+        DiscountMemo.GrantAmounts amounts = memo.amounts(cfg.getVersion(), dto.discId(), offer.getOfferId(),
+                monthNo, baseOffer, baseAlo, () -> computeAmounts(cfg, assignId, offer, conf, monthNo, baseOffer, baseAlo));
 
-        log.info("✓ AssignId {}: Discount Computation completed.", assignId);
+        log.debug("✓ AssignId {}: Discount Computation completed.", assignId);
 
         return DynDiscGrantHistory.builder()
             .requestId(contract.getRequestId())
             .assignId(assignId)
             .currentApplyCount(monthNo)
-            .lastApply(isLast)
-            .offerDiscAmount(discAmt)
-            .aloDiscAmount(aloAmt)
-            .freeMonth(isFree)
-            .specialMonth(isSpecial)
-            .offerCapped(offerCapped)
-            .aloCapped(aloCapped)
-            .aloDiscInd(aloInd)
+            .lastApply(amounts.lastApply())
+            .offerDiscAmount(amounts.offerDiscAmount())
+            .aloDiscAmount(amounts.aloDiscAmount())
+            .freeMonth(amounts.freeMonth())
+            .specialMonth(amounts.specialMonth())
+            .offerCapped(amounts.offerCapped())
+            .aloCapped(amounts.aloCapped())
+            .aloDiscInd(amounts.aloDiscInd())
             .note("Successfully applied")
             .aloOccCreated(false)
             .offerOccCreated(false)
@@ -109,62 +71,74 @@ public class DiscountCalculator {
     }
 
 
-    
-    private Optional<DynDiscOffer> findOffer(DynDiscAssignDTO dto) {
-    	
-        // Convert dto.getAssignDate (java.util.Date) to LocalDateTime
-        LocalDateTime assignDate = dto.getAssignDate().toInstant()
-            .atZone(ZoneId.systemDefault())
-            .toLocalDateTime();
-    	
-        List<DynDiscOffer> offers = cfg.getDynDiscOfferMap()
-            .getOrDefault(dto.getDiscId().intValue(), List.of());
-
-        DynDiscOffer bestMatch = null;
-        int bestPriority = Integer.MAX_VALUE;
-
-        for (DynDiscOffer o : offers) {
-        	
-            // Skip offers that do not satisfy the date eligibility
-        	// eligible dates -->  assignDate >= EligStartDate && assignDate <=EligEndDate.
-            if ((o.getEligStartDate() != null && assignDate.isBefore(o.getEligStartDate())) || 
-                (o.getEligEndDate() != null && assignDate.isAfter(o.getEligEndDate()))) {
-                continue;
+    private DiscountMemo.GrantAmounts computeAmounts(ConfigSnapshot cfg, long assignId, DynDiscOffer offer, DynDiscConf conf, int monthNo,
+            float baseOffer, float baseAlo) {
+        DiscountMemo.GrantAmounts amounts = amounts(cfg.getMonthSchedule(offer.getOfferId()), offer, conf, monthNo,
+                baseOffer, baseAlo);
+        if (log.isDebugEnabled()) {
+            if (amounts.freeMonth()) {
+                log.debug("Free month: AssignId {}", assignId);
+            } else if (amounts.specialMonth()) {
+                log.debug("Special month: AssignId {}", assignId);
             }
-            
-            	
-            int priority;
-            
-            if (o.getTmcode().equals(dto.getTmCode()) && o.getSncode().equals(dto.getOfferSnCode().intValue())) {
-                priority = 1; // Exact match
-            } else if (o.getTmcode() == -1 && o.getSncode().equals(dto.getOfferSnCode().intValue())) {
-                priority = 2; // SNCode match with TMCode = -1
-            } else if (o.getSncode() == -1 && o.getTmcode().equals(dto.getTmCode())) {
-                priority = 3; // TMCode match with SNCode = -1
-            } else if (o.getTmcode() == -1 && o.getSncode() == -1) {
-                priority = 4; // Catch-all
-            } else {
-                continue; // Skip irrelevant offers
+            if (amounts.offerCapped()) {
+                log.debug("Offer price of AssignId {} exceeds {}; capped", assignId, baseOffer);
             }
-
-            // Update the best match if this offer has a higher priority
-            if (priority < bestPriority) {
-                bestPriority = priority;
-                bestMatch = o;
+            if (amounts.aloCapped()) {
+                log.debug("ALO price of AssignId {} exceeds {}; capped", assignId, baseAlo);
             }
         }
+        return amounts;
+    }
 
-        return Optional.ofNullable(bestMatch);
+    // The formulas below are shared with the columnar engine (EvaluationBatch), which runs them per contract
+
+    /**
+     * Month of the grant: the one after the months already applied.
+     */
+    static int monthNo(int applyCount) {
+        return (applyCount != DiscountRow.NULL_INT ? applyCount : 0) + 1;
     }
 
-    
+    /**
+     * Price the amounts are capped at; 0 when the price is unknown (NaN).
+     */
+    static float basePrice(float price) {
+        return Float.isNaN(price) ? 0.0f : price;
+    }
+
+    /**
+     * Free/special/regular amounts of the month from the offer's month schedule, capped at the base prices.
+     */
+    static DiscountMemo.GrantAmounts amounts(MonthSchedule schedule, DynDiscOffer offer, DynDiscConf conf, int monthNo,
+            float baseOffer, float baseAlo) {
+        boolean aloInd = conf.getAloDiscInd();
+        boolean isFree    = offer.getFreeMonthInd() && schedule.isFree(monthNo);
+        boolean isSpecial = offer.getSpecialMonthInd() && schedule.isSpecial(monthNo);
 
-    private boolean capAndLog(String label, float value, float max) {
-        if (value > max) {
-            log.debug("{} {} exceeds {}; capping to {}", label, value, max, max);
-            return true;
+        float discAmt, aloAmt;
+        if (isFree) {
+            discAmt = baseOffer;
+            aloAmt  = aloInd ? baseAlo : 0f;
+        } else if (isSpecial) {
+            discAmt = schedule.specialOfferAmount(monthNo);
+            aloAmt  = aloInd ? schedule.specialAloAmount(monthNo) : 0f;
+        } else {
+            discAmt = offer.getOfferDiscAmt();
+            aloAmt  = aloInd ? offer.getAloDiscAmt(): 0f;
         }
-        return false;
+
+        boolean offerCapped = discAmt > baseOffer;
+        if (offerCapped) discAmt = baseOffer;
+
+        boolean aloCapped = aloInd && aloAmt > baseAlo;
+        if (aloCapped) aloAmt = baseAlo;
+
+        boolean isLast = conf.getDuration() != null 
+                         && conf.getDuration() != -1 
+                         && monthNo == conf.getDuration();
+
+        return new DiscountMemo.GrantAmounts(discAmt, aloAmt, isFree, isSpecial, offerCapped, aloCapped, isLast, aloInd);
     }
 
 }
@@ -1,9 +1,6 @@
 package com.atos.dynamicdiscount.processor.service.evaluation;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,13 +9,13 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.atos.dynamicdiscount.model.dto.DynDiscAssignDTO;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
 import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
 import com.atos.dynamicdiscount.model.entity.DynDiscConf;
 import com.atos.dynamicdiscount.model.entity.DynDiscContract;
 import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
-import com.atos.dynamicdiscount.processor.config.DynDiscConfigurations;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,10 +29,13 @@ public class DiscountEvaluationService {
 	private String username;
 	private final DiscountValidator discountValidator;
 	private final DiscountCalculator discountCalculator;
-	private final DynDiscConfigurations cfg;
 
-	public DynDiscGrantEvalDTO evaluateDiscounts(DynDiscContract contract, List<DynDiscAssignDTO> discounts,
-			LocalDateTime cutoffDate) {
+	/**
+	 * Evaluates the assignments of a contract against the cutoff date and the given configuration
+	 * snapshot, normally the one pinned to the request.
+	 */
+	public DynDiscGrantEvalDTO evaluateDiscounts(DynDiscContract contract, List<DiscountRow> discounts,
+			LocalDateTime cutoffDate, ConfigSnapshot config) {
 
 		try {
 			if (discounts == null || discounts.isEmpty()) {
@@ -43,54 +43,37 @@ public class DiscountEvaluationService {
 			}
 			
 			
-			Map<Long, String> discountErrors = new HashMap<>();
-
-
-			// 1) Partition via validationService
-			Map<Boolean, List<DynDiscAssignDTO>> parts = discounts.stream()
-				    .collect(Collectors.partitioningBy(d -> {
-				        StringBuilder error = new StringBuilder();
-				        boolean isValid = discountValidator.isValid(d, cutoffDate, error);
-				        if (!isValid) {
-				            discountErrors.put(d.getAssignId().longValue(), error.toString());
-				        }
-				        return isValid;
-				    }));
-			
-			
-			// 3) Split into unmodifiable valid/invalid lists
-			List<DynDiscAssignDTO> valid = Collections.unmodifiableList(parts.get(true));
-			List<DynDiscAssignDTO> invalid = Collections.unmodifiableList(parts.get(false));
-			
-
-			// 4) If there are no valid discounts, short-circuit
-			if (valid.isEmpty()) {
-			    // Rebuild the remark from the discountErrors map
-			    String remark = "No valid discount (" + discountErrors.size() + " invalid)";				
-
-			    // Append detailed errors from discountErrors map			    
-			    String detailedErrors = discountErrors.entrySet().stream()
-			    	    .map(entry -> String.format("[%s]", entry.getValue())) // Wrap each value in brackets
-			    	    .collect(Collectors.joining("; "));
-			    
-		        remark += ": " + detailedErrors;
+			// 1) Single pass: validate each assignment, resolving its conf and offer once, and keep the
+			//    latest valid one; failures are only kept, unrendered, for the remark
+			ValidationOutcome latest = null;
+			Map<Long, ValidationOutcome> discountErrors = null;
+			for (DiscountRow d : discounts) {
+				ValidationOutcome outcome = discountValidator.validate(d, cutoffDate, config);
+				if (!outcome.isValid()) {
+					if (discountErrors == null) {
+						discountErrors = new HashMap<>();
+					}
+					discountErrors.put(d.assignId(), outcome);
+				} else if (latest == null || outcome.isLaterThan(latest)) {
+					latest = outcome;
+				}
+			}
 
+			// 2) If there are no valid discounts, short-circuit
+			if (latest == null) {
+			    String remark = noValidDiscountRemark(discountErrors);
 			    return buildResult(contract, null, null, "S", remark);
 			}
 
-			// 3) Otherwise pick the latest valid assignment
-			DynDiscAssignDTO latest = valid.stream()
-			    .max(Comparator.comparing(DynDiscAssignDTO::getAssignDate)
-			         .thenComparing(DynDiscAssignDTO::getAssignId)).get();  
+			// 3) Otherwise the latest valid assignment is processed
+			log.info("✓ AssignId {}: Selected for processing.", latest.assignment().assignId());
 
-			log.info("✓ AssignId {}: Selected for processing.", latest.getAssignId());
 
-
-			// 4) Compute grant history via computationService
-			DynDiscGrantHistory grant = discountCalculator.compute(contract, latest);
+			// 4) Compute grant history via computationService, reusing the resolved conf and offer
+			DynDiscGrantHistory grant = discountCalculator.compute(contract, latest, config);
 
 			// 5) Build evaluation history via helper
-			DynDiscEvalHistory eval = buildEvalHistory(latest, grant, cutoffDate);
+			DynDiscEvalHistory eval = buildEvalHistory(latest, grant, cutoffDate, username);
 			return buildResult(contract, eval, grant, null,null);
 
 		}
@@ -102,43 +85,58 @@ public class DiscountEvaluationService {
 		
 	}
 
-	private DynDiscGrantEvalDTO buildResult(DynDiscContract contract, DynDiscEvalHistory eval,
+	static DynDiscGrantEvalDTO buildResult(DynDiscContract contract, DynDiscEvalHistory eval,
 			DynDiscGrantHistory grant, String status, String remark) {
 		contract.setStatus(status);
 		contract.setRemark(remark);
 		return new DynDiscGrantEvalDTO(contract, eval, grant);
 	}
 
-	private DynDiscEvalHistory buildEvalHistory(DynDiscAssignDTO latest, DynDiscGrantHistory grant, LocalDateTime cutoffDate) {
-	    DynDiscConf conf = cfg.getDynDiscConfMap().get(latest.getDiscId().intValue());
+	/**
+	 * Remark of a contract without any valid assignment, listing the failure of each one.
+	 */
+	static String noValidDiscountRemark(Map<Long, ValidationOutcome> discountErrors) {
+	    // Rebuild the remark from the discountErrors map
+	    String remark = "No valid discount (" + discountErrors.size() + " invalid)";
+
+	    // Append detailed errors from discountErrors map
+	    String detailedErrors = discountErrors.entrySet().stream()
+	    	    .map(entry -> "[" + entry.getValue().render() + "]") // Wrap each value in brackets
+	    	    .collect(Collectors.joining("; "));
+
+	    return remark + ": " + detailedErrors;
+	}
+
+	static DynDiscEvalHistory buildEvalHistory(ValidationOutcome resolved, DynDiscGrantHistory grant, LocalDateTime cutoffDate,
+			String username) {
+	    DiscountRow latest = resolved.assignment();
+	    DynDiscConf conf = resolved.conf();
+	    if (!latest.hasOfferPrice()) {
+	        throw new IllegalStateException("Offer price missing for AssignId=" + latest.assignId());
+	    }
 
 	    return DynDiscEvalHistory.builder()
 	            .requestId(grant.getRequestId())
 	            .assignId(grant.getAssignId())
-	            .customerId(latest.getCustomerId().intValue())
-	            .coId(latest.getCoId().intValue())
+	            .customerId(latest.customerId())
+	            .coId(latest.coId())
 	            .billPeriodEndDate(cutoffDate)
-	            .lbcDate(latest.getLbcDate() != null
-	                    ? latest.getLbcDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime()
-	                    : null)
-	            .prgCode(latest.getPrgcode())
-	            .tmCode(latest.getTmCode())
-	            .discSncode(latest.getDiscSncode().intValue())
-	            .discId(latest.getDiscId().intValue())
+	            .lbcDate(DiscountRow.toLocalDateTime(latest.lbcDate()))
+	            .prgCode(latest.prgcode())
+	            .tmCode(latest.tmCode() != DiscountRow.NULL_INT ? latest.tmCode() : null)
+	            .discSncode(latest.discSncode())
+	            .discId(latest.discId())
 	            .occSncode(conf.getOccSncode())
 	            .occGlcode(conf.getOccGlcode())
-	            .offerSncode(latest.getOfferSnCode().intValue())
+	            .offerSncode(latest.offerSnCode())
 	            .occRemark(conf.getOccRemark())
-	            .offerValidFrom(latest.getOfferValidFromDate()
-	                    .toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime())
-	            .offerStatus(String.valueOf(latest.getOfferStatus()))
-	            .offerPrice(latest.getOfferPrice().floatValue())
-	            .aloSncode(latest.getAloSnCode() != null ? latest.getAloSnCode().intValue() : null)
-	            .aloValidFrom(latest.getAloValidFromDate() != null
-	                    ? latest.getAloValidFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime()
-	                    : null)
-	            .aloStatus(latest.getAloStatus() != null ? String.valueOf(latest.getAloStatus()) : "")
-	            .aloPrice(latest.getAloPrice() != null ? latest.getAloPrice().floatValue() : 0.0f)
+	            .offerValidFrom(DiscountRow.toLocalDateTime(latest.offerValidFromDate()))
+	            .offerStatus(latest.offerStatus() != DiscountRow.NULL_CHAR ? String.valueOf(latest.offerStatus()) : null)
+	            .offerPrice(latest.offerPrice())
+	            .aloSncode(latest.hasAloSnCode() ? latest.aloSnCode() : null)
+	            .aloValidFrom(DiscountRow.toLocalDateTime(latest.aloValidFromDate()))
+	            .aloStatus(latest.hasAloStatus() ? String.valueOf(latest.aloStatus()) : "")
+	            .aloPrice(latest.hasAloPrice() ? latest.aloPrice() : 0.0f)
 	            .username(username)
 	            .build();
 	}
@@ -0,0 +1,141 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.processor.config.ConfigurationsRefreshedEvent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded memo of the evaluation rules, for contracts sharing the same inputs: the verdicts of
+ * the validation rules, keyed on the assignment columns they read, and the computed grant
+ * amounts, keyed on the offer, month and prices. Both only depend on the configuration, whose
+ * snapshot version is part of every key; they are dropped whenever a changed configuration is
+ * loaded. The memo is not request-scoped: while the configuration stays the same, its entries
+ * and statistics carry over from one request (and dry run) to the next.
+ */
+@Component
+@Slf4j
+public class DiscountMemo {
+
+	// Memoizes validation verdicts and grant amounts of identical inputs
+	@Value("${processing.memo.enabled:false}")
+	private boolean enabled;
+
+	// Entries kept per cache; least recently used ones are evicted beyond it
+	@Value("${processing.memo.max.size:100000}")
+	private long maxSize;
+
+	// Replaced, not cleared, when a changed configuration is loaded, so the statistics cover one
+	// configuration version, over all requests evaluated with it
+	private volatile Cache<RuleSignature, RuleVerdict> verdicts;
+	private volatile Cache<AmountSignature, GrantAmounts> amounts;
+
+	@PostConstruct
+	void init() {
+		invalidate();
+		log.info("Discount memo: {} (max {} entries per cache).", enabled ? "enabled" : "disabled", maxSize);
+	}
+
+	/**
+	 * Verdicts of the configuration and price-group rules for the assignment.
+	 */
+	RuleVerdict verdict(DiscountRow row, LocalDateTime cutoffDate, long configVersion, Supplier<RuleVerdict> rules) {
+		if (!enabled) {
+			return rules.get();
+		}
+		RuleSignature key = new RuleSignature(configVersion, row.discId(), row.applyCount(), row.ovwApplyCount(),
+				row.prgcode(), cutoffDate);
+		return lookup(verdicts, key, rules);
+	}
+
+	/**
+	 * Amounts of the grant for the offer and month, from the given base prices.
+	 */
+	GrantAmounts amounts(long configVersion, int discId, int offerId, int monthNo, float baseOffer, float baseAlo,
+			Supplier<GrantAmounts> computation) {
+		if (!enabled) {
+			return computation.get();
+		}
+		return lookup(amounts, new AmountSignature(configVersion, discId, offerId, monthNo, baseOffer, baseAlo),
+				computation);
+	}
+
+	// getIfPresent counts the hit or miss; a concurrent miss computes the same value twice at worst
+	private static <K, V> V lookup(Cache<K, V> cache, K key, Supplier<V> loader) {
+		V value = cache.getIfPresent(key);
+		if (value == null) {
+			value = loader.get();
+			cache.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Hit/miss statistics of both caches since the configuration last changed, which may span
+	 * several requests.
+	 */
+	public List<MemoStatus> getStatus() {
+		return List.of(status("verdicts", verdicts), status("amounts", amounts));
+	}
+
+	@EventListener
+	public void onConfigurationsRefreshed(ConfigurationsRefreshedEvent event) {
+		if (enabled) {
+			getStatus().forEach(status -> log.info("Discount memo [{}]: {} hits, {} misses ({}% hit rate), {} entries.",
+					status.getCache(), status.getHits(), status.getMisses(),
+					String.format("%.1f", status.getHitRate() * 100), status.getSize()));
+		}
+		invalidate();
+	}
+
+	public void invalidate() {
+		verdicts = newCache();
+		amounts = newCache();
+		log.debug("Discount memo invalidated.");
+	}
+
+	private <K, V> Cache<K, V> newCache() {
+		return CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+	}
+
+	private static MemoStatus status(String name, Cache<?, ?> cache) {
+		CacheStats stats = cache.stats();
+		return MemoStatus.builder()
+				.cache(name)
+				.hits(stats.hitCount())
+				.misses(stats.missCount())
+				.hitRate(stats.requestCount() > 0 ? stats.hitRate() : 0)
+				.evictions(stats.evictionCount())
+				.size(cache.size())
+				.build();
+	}
+
+	private record RuleSignature(long configVersion, int discId, int applyCount, int ovwApplyCount, String prgcode,
+			LocalDateTime cutoffDate) {
+	}
+
+	private record AmountSignature(long configVersion, int discId, int offerId, int monthNo, float baseOffer, float baseAlo) {
+	}
+
+	/**
+	 * Failed rule of the configuration and price-group steps, null when it passes.
+	 */
+	record RuleVerdict(ValidationReason config, ValidationReason priceGroup) {
+	}
+
+	record GrantAmounts(float offerDiscAmount, float aloDiscAmount, boolean freeMonth, boolean specialMonth,
+			boolean offerCapped, boolean aloCapped, boolean lastApply, boolean aloDiscInd) {
+	}
+}
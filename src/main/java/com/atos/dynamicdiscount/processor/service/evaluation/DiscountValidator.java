@@ -1,19 +1,14 @@
 package com.atos.dynamicdiscount.processor.service.evaluation;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
-import com.atos.dynamicdiscount.model.dto.DynDiscAssignDTO;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
 import com.atos.dynamicdiscount.model.entity.DynDiscConf;
 import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
-import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
-import com.atos.dynamicdiscount.processor.config.DynDiscConfigurations;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.PriceGroupIndex;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,178 +18,125 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DiscountValidator {
 
-    private final DynDiscConfigurations cfg;
+    private final DiscountMemo memo;
 
     /**
-     * Determines if a discount assignment is valid based on various criteria.
+     * Determines if a discount assignment is valid based on various criteria. A valid outcome carries
+     * its best matching offer, so the calculator can reuse it; an invalid one its failed rule.
+     * The rules are those of the given configuration snapshot.
      */
-    public boolean isValid(DynDiscAssignDTO dto, LocalDateTime cutoffDate, StringBuilder error) {
-        if (!hasValidConfig(dto, cutoffDate, error)) {
-            return false;
+    public ValidationOutcome validate(DiscountRow dto, LocalDateTime cutoffDate, ConfigSnapshot cfg) {
+        ValidationOutcome outcome = check(dto, cutoffDate, cfg);
+        if (outcome.isValid()) {
+            log.debug("✓ AssignId {}: Valid discount.", dto.assignId());
+        } else if (log.isDebugEnabled()) {
+            log.debug(outcome.render());
         }
-        if (isPriceGroupExcluded(dto, error)) {
-            return false;
+        return outcome;
+    }
+
+    private ValidationOutcome check(DiscountRow dto, LocalDateTime cutoffDate, ConfigSnapshot cfg) {
+        DynDiscConf conf = cfg.getDynDiscConfMap().get(dto.discId());
+        // The rules only read the signature columns, so their verdicts are shared by identical assignments
+        DiscountMemo.RuleVerdict verdict = memo.verdict(dto, cutoffDate, cfg.getVersion(), () -> new DiscountMemo.RuleVerdict(
+                checkConfig(dto, cutoffDate, conf), checkPriceGroup(dto, cfg)));
+        ValidationReason reason = verdict.config();
+        if (reason == ValidationReason.DISCOUNT_EXPIRED) {
+            return ValidationOutcome.expired(dto, cutoffDate, conf);
         }
-        if (!isOfferEligible(dto, error)) {
-            return false;
+        if (reason == null) {
+            reason = verdict.priceGroup();
         }
-        if (!isOfferStatusPermitted(dto, error)) {
-            return false;
+        if (reason != null) {
+            return ValidationOutcome.invalid(reason, dto);
         }
-        log.info("✓ AssignId {}: Valid discount.", dto.getAssignId());
-        return true;
+        DynDiscOffer offer = findEligibleOffer(dto, cfg);
+        if (offer == null) {
+            return ValidationOutcome.invalid(ValidationReason.OFFER_NOT_ELIGIBLE, dto);
+        }
+        // Only checked for an eligible offer
+        reason = checkOfferStatus(dto.offerStatus(), conf);
+        return reason != null ? ValidationOutcome.invalid(reason, dto) : ValidationOutcome.valid(dto, offer, conf);
     }
 
     /**
      * Checks if the discount configuration exists, is active, and its application limit has not been reached.
      */
-    private boolean hasValidConfig(DynDiscAssignDTO dto, LocalDateTime cutoffDate, StringBuilder error) {
-        DynDiscConf conf = cfg.getDynDiscConfMap().get(dto.getDiscId().intValue());
+    private ValidationReason checkConfig(DiscountRow dto, LocalDateTime cutoffDate, DynDiscConf conf) {
         if (conf == null) {
-            String errMsg = String.format("! AssignId %s: No config for DiscId %s.", dto.getAssignId(), dto.getDiscId());
-            log.warn(errMsg);
-            error.append(errMsg);
-            return false;
+            return ValidationReason.NO_CONFIG;
         }
-
-        if ((conf.getValidTo() != null && !conf.getValidTo().isAfter(cutoffDate))
-                || (conf.getValidFrom() != null && !conf.getValidFrom().isBefore(cutoffDate))) {
-            String errMsg = String.format(
-                "AssignId %s: Discount expired, not valid for the cutoff date %s (Valid From: %s, Valid To: %s).",
-                dto.getAssignId(), cutoffDate, conf.getValidFrom(), conf.getValidTo());
-            log.info(errMsg);
-            error.append(errMsg);
-            return false;
+        if (isExpired(conf, cutoffDate)) {
+            return ValidationReason.DISCOUNT_EXPIRED;
         }
+        return checkApplyLimit(dto.applyCount(), dto.ovwApplyCount(), duration(conf));
+    }
 
-        int applied = dto.getApplyCount() != null ? dto.getApplyCount().intValue() : 0;
-        int limit = (dto.getOvwApplyCount() != null) ? dto.getOvwApplyCount().intValue()
-                : (conf.getDuration() != null ? conf.getDuration() : -1);
-        if (limit != -1 && applied >= limit) {
-            String errMsg = String.format("! AssignId %s: Limit reached.", dto.getAssignId());
-            log.info(errMsg);
-            error.append(errMsg);
-            return false;
-        }
-        return true;
+    private ValidationReason checkPriceGroup(DiscountRow dto, ConfigSnapshot cfg) {
+        return checkPriceGroup(cfg.getPriceGroupIndex().rulesFor(dto.discId()), dto.prgcode());
+    }
+
+    // The rules below are shared with the columnar engine (EvaluationBatch), which runs them over columns
+
+    /**
+     * Checks if the discount is outside its validity period at the cutoff date.
+     */
+    static boolean isExpired(DynDiscConf conf, LocalDateTime cutoffDate) {
+        return (conf.getValidTo() != null && !conf.getValidTo().isAfter(cutoffDate))
+                || (conf.getValidFrom() != null && !conf.getValidFrom().isBefore(cutoffDate));
+    }
+
+    /**
+     * Number of applications of the discount, -1 when unlimited.
+     */
+    static int duration(DynDiscConf conf) {
+        return conf.getDuration() != null ? conf.getDuration() : -1;
+    }
+
+    /**
+     * Checks if the application limit, the assignment's override or else the duration, has been reached.
+     */
+    static ValidationReason checkApplyLimit(int applyCount, int ovwApplyCount, int duration) {
+        int applied = applyCount != DiscountRow.NULL_INT ? applyCount : 0;
+        int limit = ovwApplyCount != DiscountRow.NULL_INT ? ovwApplyCount : duration;
+        return limit != -1 && applied >= limit ? ValidationReason.LIMIT_REACHED : null;
     }
 
     /**
      * Checks if the customer's price group is excluded or restricted from the discount.
      */
-    private boolean isPriceGroupExcluded(DynDiscAssignDTO dto, StringBuilder error) {
-        List<DynDiscPriceGroup> groups = cfg.getDynDiscPriceGroupMap().values().stream()
-            .filter(pg -> pg.getId().getDiscId().equals(dto.getDiscId().intValue()))
-            .filter(pg -> pg.isRestrictInd() != pg.isProhibitInd())
-            .collect(Collectors.toList());
-
-        if (groups.isEmpty()) {
-            return false;
+    static ValidationReason checkPriceGroup(PriceGroupIndex.Rules rules, String prgcode) {
+        if (rules == null) {
+            return null;
         }
 
-        Set<String> restricted = groups.stream()
-            .filter(DynDiscPriceGroup::isRestrictInd)
-            .map(pg -> pg.getId().getPrgcode())
-            .collect(Collectors.toSet());
-        
-        
-        
-     // Check restricted list first
-        if (!restricted.isEmpty()) {
-            if (!restricted.contains(dto.getPrgcode())) {
-                String errMsg = String.format(
-                    "! AssignId %s: Discount restricted - Customer price group '%s' not allowed.",
-                    dto.getAssignId(), dto.getPrgcode());
-                log.info(errMsg);
-                error.append(errMsg);
-                return true;
-            }
-            // If restricted list is not empty and we get here, 
-            // it means the prgcode is in restricted list (allowed)
-            return false;
+        // Check restricted list first; when it is not empty, only its price groups are allowed
+        if (rules.isRestricted()) {
+            return rules.isAllowedByRestriction(prgcode) ? null : ValidationReason.PRICE_GROUP_RESTRICTED;
         }
-        
-        
+
         // ONLY check prohibited list if restricted list is empty
-        Set<String> prohibited = groups.stream()
-            .filter(DynDiscPriceGroup::isProhibitInd)
-            .map(pg -> pg.getId().getPrgcode())
-            .collect(Collectors.toSet());
-        if (!prohibited.isEmpty() && prohibited.contains(dto.getPrgcode())) {
-            String errMsg = String.format(
-                "! AssignId %s: Discount prohibited - Customer price group '%s' is excluded.",
-                dto.getAssignId(), dto.getPrgcode());
-            log.info(errMsg);
-            error.append(errMsg);
-            return true;
-        }
-        return false;
+        return rules.isProhibited(prgcode) ? ValidationReason.PRICE_GROUP_PROHIBITED : null;
     }
-        
-        
-        
-        
-       
+
     /**
-     * Checks if the discount offer is eligible based on TMCode and SNCode matching.
+     * Finds the best offer matching the TMCode and SNCode whose eligibility period contains the
+     * assignment date; null when the assignment is not eligible.
      */
-    private boolean isOfferEligible(DynDiscAssignDTO dto, StringBuilder error) {
-    	
-        LocalDateTime assignDate = dto.getAssignDate().toInstant()
-            .atZone(ZoneId.systemDefault())
-            .toLocalDateTime();
-
-        List<DynDiscOffer> offers = cfg.getDynDiscOfferMap()
-            .getOrDefault(dto.getDiscId().intValue(), Collections.emptyList());
-
-        for (DynDiscOffer offer : offers) {
-            boolean isTmSnMatched =
-                (offer.getTmcode().equals(dto.getTmCode()) && offer.getSncode().equals(dto.getOfferSnCode().intValue()))
-                || (offer.getTmcode() == -1 && offer.getSncode().equals(dto.getOfferSnCode().intValue()))
-                || (offer.getSncode() == -1 && offer.getTmcode().equals(dto.getTmCode()))
-                || (offer.getTmcode() == -1 && offer.getSncode() == -1);
-
-            if (isTmSnMatched) {
-                boolean isDateEligible =
-                    (offer.getEligStartDate() == null || !assignDate.isBefore(offer.getEligStartDate())) &&
-                    (offer.getEligEndDate() == null || !assignDate.isAfter(offer.getEligEndDate()));
-
-                if (isDateEligible) {
-                    return true;
-                }
-            }
-        }
-
-        String errMsg = String.format(
-            "! AssignId %s: TM/SN (%s/%s) not eligible for DiscId %s (not included or initial assignment date invalid).",
-            dto.getAssignId(), dto.getTmCode(), dto.getOfferSnCode(), dto.getDiscId());
-        log.warn(errMsg);
-        error.append(errMsg);
-        return false;
+    private DynDiscOffer findEligibleOffer(DiscountRow dto, ConfigSnapshot cfg) {
+        return cfg.getOfferIndex().findBestOffer(dto.discId(), dto.tmCode(), dto.offerSnCode(), dto.assignDate());
     }
 
     /**
      * Checks if the offer status (e.g., Suspended, On Hold) permits the discount application.
      */
-    private boolean isOfferStatusPermitted(DynDiscAssignDTO dto, StringBuilder error) {
-        DynDiscConf conf = cfg.getDynDiscConfMap().get(dto.getDiscId().intValue());
-        if ("S".equals(String.valueOf(dto.getOfferStatus())) && !conf.getSuspInd()) {
-            String errMsg = String.format(
-                "! AssignId %s: Discount not allowed - Offer Suspended. SNCode: %s",
-                dto.getAssignId(), dto.getOfferSnCode());
-            log.info(errMsg);
-            error.append(errMsg);
-            return false;
+    static ValidationReason checkOfferStatus(char offerStatus, DynDiscConf conf) {
+        if (offerStatus == 'S' && !conf.getSuspInd()) {
+            return ValidationReason.OFFER_SUSPENDED;
         }
-
-        if ("O".equals(String.valueOf(dto.getOfferStatus()))) {
-            String errMsg = String.format(
-                "! AssignId %s: Discount not allowed - Offer On Hold. SNCode: %s",
-                dto.getAssignId(), dto.getOfferSnCode());
-            log.info(errMsg);
-            error.append(errMsg);
-            return false;
+        if (offerStatus == 'O') {
+            return ValidationReason.OFFER_ON_HOLD;
         }
-        return true;
+        return null;
     }
 }
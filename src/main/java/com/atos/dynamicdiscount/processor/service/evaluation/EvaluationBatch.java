@@ -0,0 +1,258 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.atos.dynamicdiscount.model.dto.DiscountColumns;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.OfferIndex;
+import com.atos.dynamicdiscount.processor.config.PriceGroupIndex;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evaluation of a whole package by the columnar engine. The rules of {@link DiscountValidator}
+ * and the formulas of {@link DiscountCalculator}, shared as their static helpers, run as loops
+ * over the {@link DiscountColumns}, and their results are kept in arrays per row (failed rule)
+ * and per contract (selected row, amounts).
+ * Contracts are independent, so disjoint contract ranges can be evaluated in parallel. Entities
+ * are only built by {@link #result(DynDiscContract)}, when the contract's chunk is processed.
+ */
+@Slf4j
+public final class EvaluationBatch {
+
+	private static final ValidationReason[] REASONS = ValidationReason.values();
+	private static final byte VALID = 0;
+
+	private final DiscountColumns columns;
+	private final LocalDateTime cutoffDate;
+	private final String username;
+	private final ConfigSnapshot cfg;
+	private final DiscountTable discounts;
+
+	// Per row: failed rule (ordinal + 1), or VALID
+	private final byte[] rowReason;
+
+	// Per contract: selected row (-1 when none is valid) and its computed grant
+	private final int[] selected;
+	private final DynDiscOffer[] offer;
+	private final DynDiscConf[] conf;
+	private final int[] monthNo;
+	private final DiscountMemo.GrantAmounts[] amounts;
+	private final String[] error; // Failure of the contract's evaluation, null when it succeeded
+
+	EvaluationBatch(DiscountColumns columns, LocalDateTime cutoffDate, String username, ConfigSnapshot cfg) {
+		this.columns = columns;
+		this.cutoffDate = cutoffDate;
+		this.username = username;
+		this.cfg = cfg;
+		this.discounts = new DiscountTable(columns, cutoffDate, cfg);
+		this.rowReason = new byte[columns.size()];
+		int contracts = columns.contractCount();
+		this.selected = new int[contracts];
+		this.offer = new DynDiscOffer[contracts];
+		this.conf = new DynDiscConf[contracts];
+		this.monthNo = new int[contracts];
+		this.amounts = new DiscountMemo.GrantAmounts[contracts];
+		this.error = new String[contracts];
+	}
+
+	public DiscountColumns getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Number of contracts with a valid assignment, once evaluated.
+	 */
+	public int validCount() {
+		return (int) Arrays.stream(selected).filter(row -> row >= 0).count();
+	}
+
+	/**
+	 * Validates the assignments of contracts [from, to), selects the latest valid one of each
+	 * and computes its amounts. A contract whose evaluation throws, e.g. on a missing
+	 * configuration flag, fails alone: its result gets status 'F' and the error as remark.
+	 */
+	void evaluate(int from, int to) {
+		OfferIndex offers = cfg.getOfferIndex();
+		for (int c = from; c < to; c++) {
+			try {
+				evaluate(c, offers);
+			} catch (Exception ex) {
+				selected[c] = -1;
+				error[c] = "Error during discount evaluation for contract " + columns.contractCoId(c) + ": " + ex.getMessage();
+				log.error("✗ {}, {}", error[c], ex);
+			}
+		}
+	}
+
+	// Selects the latest valid assignment of contract c and computes its amounts
+	private void evaluate(int c, OfferIndex offers) {
+		int best = -1;
+		int bestSlot = -1;
+		DynDiscOffer bestOffer = null;
+		for (int r = columns.contractStart(c), end = columns.contractEnd(c); r < end; r++) {
+			int slot = discounts.slot(columns.discId(r));
+			DynDiscOffer matched = null;
+			ValidationReason reason = checkConfig(r, slot);
+			if (reason == null) {
+				reason = DiscountValidator.checkPriceGroup(discounts.rules[slot], columns.prgcode(r));
+			}
+			if (reason == null) {
+				matched = offers.findBestOffer(columns.discId(r), columns.tmCode(r), columns.offerSnCode(r),
+						columns.assignDate(r));
+				reason = matched == null ? ValidationReason.OFFER_NOT_ELIGIBLE
+						: DiscountValidator.checkOfferStatus(columns.offerStatus(r), discounts.conf[slot]);
+			}
+			if (reason != null) {
+				rowReason[r] = (byte) (reason.ordinal() + 1);
+			} else if (best < 0 || isLater(r, best)) {
+				best = r;
+				bestSlot = slot;
+				bestOffer = matched;
+			}
+		}
+		selected[c] = best;
+		if (best >= 0) {
+			compute(c, best, bestOffer, discounts.conf[bestSlot]);
+		}
+	}
+
+	/**
+	 * Same configuration rules, in the same order, as {@link DiscountValidator}, with the expiry and
+	 * duration resolved once per discount; null when they pass.
+	 */
+	private ValidationReason checkConfig(int r, int slot) {
+		if (discounts.conf[slot] == null) {
+			return ValidationReason.NO_CONFIG;
+		}
+		if (discounts.expired[slot]) {
+			return ValidationReason.DISCOUNT_EXPIRED;
+		}
+		return DiscountValidator.checkApplyLimit(columns.applyCount(r), columns.ovwApplyCount(r), discounts.duration[slot]);
+	}
+
+	// Later by assignment date, then by id, as ValidationOutcome.isLaterThan
+	private boolean isLater(int r, int other) {
+		if (columns.assignDate(r) != columns.assignDate(other)) {
+			return columns.assignDate(r) > columns.assignDate(other);
+		}
+		return columns.assignId(r) > columns.assignId(other);
+	}
+
+	/**
+	 * Computes the amounts of contract c with the formulas of {@link DiscountCalculator}.
+	 */
+	private void compute(int c, int r, DynDiscOffer matched, DynDiscConf resolved) {
+		int month = DiscountCalculator.monthNo(columns.applyCount(r));
+		amounts[c] = DiscountCalculator.amounts(cfg.getMonthSchedule(matched.getOfferId()), matched, resolved, month,
+				DiscountCalculator.basePrice(columns.offerPrice(r)), DiscountCalculator.basePrice(columns.aloPrice(r)));
+		offer[c] = matched;
+		conf[c] = resolved;
+		monthNo[c] = month;
+	}
+
+	/**
+	 * Builds the evaluation result of a contract, as {@link DiscountEvaluationService} would, from
+	 * the evaluated columns. A contract without assignments gets the "no valid assignment" result.
+	 */
+	public DynDiscGrantEvalDTO result(DynDiscContract contract) {
+		int c = columns.indexOfContract(contract.getCoId());
+		if (c < 0) {
+			return DiscountEvaluationService.buildResult(contract, null, null, "S", "No valid assignment.");
+		}
+		if (error[c] != null) {
+			return DiscountEvaluationService.buildResult(contract, null, null, "F", error[c]);
+		}
+		try {
+			int r = selected[c];
+			if (r < 0) {
+				Map<Long, ValidationOutcome> discountErrors = new HashMap<>();
+				for (int i = columns.contractStart(c), end = columns.contractEnd(c); i < end; i++) {
+					discountErrors.put(columns.assignId(i), failure(i));
+				}
+				return DiscountEvaluationService.buildResult(contract, null, null, "S",
+						DiscountEvaluationService.noValidDiscountRemark(discountErrors));
+			}
+
+			DiscountMemo.GrantAmounts granted = amounts[c];
+			DynDiscGrantHistory grant = DynDiscGrantHistory.builder()
+					.requestId(contract.getRequestId())
+					.assignId(columns.assignId(r))
+					.currentApplyCount(monthNo[c])
+					.lastApply(granted.lastApply())
+					.offerDiscAmount(granted.offerDiscAmount())
+					.aloDiscAmount(granted.aloDiscAmount())
+					.freeMonth(granted.freeMonth())
+					.specialMonth(granted.specialMonth())
+					.offerCapped(granted.offerCapped())
+					.aloCapped(granted.aloCapped())
+					.aloDiscInd(granted.aloDiscInd())
+					.note("Successfully applied")
+					.aloOccCreated(false)
+					.offerOccCreated(false)
+					.username(username)
+					.build();
+			DynDiscEvalHistory eval = DiscountEvaluationService.buildEvalHistory(
+					ValidationOutcome.valid(columns.row(r), offer[c], conf[c]), grant, cutoffDate, username);
+			return DiscountEvaluationService.buildResult(contract, eval, grant, null, null);
+		} catch (Exception ex) {
+			String msg = "Error during discount evaluation for contract " + contract.getCoId() + ": " + ex.getMessage();
+			log.error("✗ {}, {}", msg, ex);
+			return DiscountEvaluationService.buildResult(contract, null, null, "F", msg);
+		}
+	}
+
+	private ValidationOutcome failure(int r) {
+		ValidationReason reason = REASONS[rowReason[r] - 1];
+		DiscountRow row = columns.row(r);
+		if (reason == ValidationReason.DISCOUNT_EXPIRED) {
+			return ValidationOutcome.expired(row, cutoffDate, discounts.conf[discounts.slot(row.discId())]);
+		}
+		return ValidationOutcome.invalid(reason, row);
+	}
+
+	/**
+	 * Configuration of each discount of the package, resolved once: the sorted discIds are
+	 * searched by row, so the loops never box an ID or compare dates.
+	 */
+	private static final class DiscountTable {
+
+		private final int[] discIds;
+		private final DynDiscConf[] conf;
+		private final boolean[] expired;
+		private final int[] duration;
+		private final PriceGroupIndex.Rules[] rules;
+
+		DiscountTable(DiscountColumns columns, LocalDateTime cutoffDate, ConfigSnapshot cfg) {
+			discIds = IntStream.range(0, columns.size()).map(columns::discId).distinct().sorted().toArray();
+			conf = new DynDiscConf[discIds.length];
+			expired = new boolean[discIds.length];
+			duration = new int[discIds.length];
+			rules = new PriceGroupIndex.Rules[discIds.length];
+			for (int slot = 0; slot < discIds.length; slot++) {
+				DynDiscConf discConf = cfg.getDynDiscConfMap().get(discIds[slot]);
+				conf[slot] = discConf;
+				rules[slot] = cfg.getPriceGroupIndex().rulesFor(discIds[slot]);
+				if (discConf != null) {
+					expired[slot] = DiscountValidator.isExpired(discConf, cutoffDate);
+					duration[slot] = DiscountValidator.duration(discConf);
+				}
+			}
+		}
+
+		int slot(int discId) {
+			return Arrays.binarySearch(discIds, discId);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Hit/miss snapshot of one cache of the {@link DiscountMemo}.
+ */
+@Value
+@Builder
+public class MemoStatus {
+
+	String cache;
+	long hits;
+	long misses;
+	double hitRate; // Hits / lookups, 0 when there were none
+	long evictions;
+	long size;
+}
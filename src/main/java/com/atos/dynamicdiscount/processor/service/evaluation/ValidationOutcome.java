@@ -0,0 +1,66 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import java.time.LocalDateTime;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+
+/**
+ * Result of validating one assignment. A valid outcome carries the configuration and offer
+ * resolved for it, so selection and amount computation reuse them instead of looking them up
+ * again. A failure carries the failed rule and only references what its message needs; the text
+ * is rendered on demand, when it goes into a contract remark or a debug log.
+ */
+public record ValidationOutcome(ValidationReason reason, DiscountRow assignment, DynDiscOffer offer,
+		LocalDateTime cutoffDate, DynDiscConf conf) {
+
+	static ValidationOutcome valid(DiscountRow assignment, DynDiscOffer offer, DynDiscConf conf) {
+		return new ValidationOutcome(null, assignment, offer, null, conf);
+	}
+
+	static ValidationOutcome invalid(ValidationReason reason, DiscountRow assignment) {
+		return new ValidationOutcome(reason, assignment, null, null, null);
+	}
+
+	static ValidationOutcome expired(DiscountRow assignment, LocalDateTime cutoffDate, DynDiscConf conf) {
+		return new ValidationOutcome(ValidationReason.DISCOUNT_EXPIRED, assignment, null, cutoffDate, conf);
+	}
+
+	public boolean isValid() {
+		return reason == null;
+	}
+
+	/**
+	 * Whether this valid assignment is later than the other one: by assignment date, then by id.
+	 */
+	boolean isLaterThan(ValidationOutcome other) {
+		if (assignment.assignDate() != other.assignment.assignDate()) {
+			return assignment.assignDate() > other.assignment.assignDate();
+		}
+		return assignment.assignId() > other.assignment.assignId();
+	}
+
+	/**
+	 * Human-readable text of the failure, as stored in the contract remark.
+	 */
+	public String render() {
+		if (reason == null) {
+			return "AssignId " + assignment.assignId() + ": Valid discount.";
+		}
+		return switch (reason) {
+		case NO_CONFIG -> reason.format(assignment.assignId(), assignment.discId());
+		case DISCOUNT_EXPIRED -> reason.format(assignment.assignId(), cutoffDate, conf.getValidFrom(), conf.getValidTo());
+		case LIMIT_REACHED -> reason.format(assignment.assignId());
+		case PRICE_GROUP_RESTRICTED, PRICE_GROUP_PROHIBITED -> reason.format(assignment.assignId(), assignment.prgcode());
+		case OFFER_NOT_ELIGIBLE -> reason.format(assignment.assignId(), text(assignment.tmCode()),
+				text(assignment.offerSnCode()), assignment.discId());
+		case OFFER_SUSPENDED, OFFER_ON_HOLD -> reason.format(assignment.assignId(), text(assignment.offerSnCode()));
+		};
+	}
+
+	// Absent values print as before, when they were null wrappers
+	private static String text(int value) {
+		return value == DiscountRow.NULL_INT ? "null" : Integer.toString(value);
+	}
+}
@@ -0,0 +1,26 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+/**
+ * Rule an assignment failed in {@link DiscountValidator}, with the template of its remark text.
+ */
+public enum ValidationReason {
+
+	NO_CONFIG("! AssignId %s: No config for DiscId %s."),
+	DISCOUNT_EXPIRED("AssignId %s: Discount expired, not valid for the cutoff date %s (Valid From: %s, Valid To: %s)."),
+	LIMIT_REACHED("! AssignId %s: Limit reached."),
+	PRICE_GROUP_RESTRICTED("! AssignId %s: Discount restricted - Customer price group '%s' not allowed."),
+	PRICE_GROUP_PROHIBITED("! AssignId %s: Discount prohibited - Customer price group '%s' is excluded."),
+	OFFER_NOT_ELIGIBLE("! AssignId %s: TM/SN (%s/%s) not eligible for DiscId %s (not included or initial assignment date invalid)."),
+	OFFER_SUSPENDED("! AssignId %s: Discount not allowed - Offer Suspended. SNCode: %s"),
+	OFFER_ON_HOLD("! AssignId %s: Discount not allowed - Offer On Hold. SNCode: %s");
+
+	private final String template;
+
+	ValidationReason(String template) {
+		this.template = template;
+	}
+
+	String format(Object... args) {
+		return String.format(template, args);
+	}
+}
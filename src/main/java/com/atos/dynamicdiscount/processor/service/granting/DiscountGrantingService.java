@@ -1,14 +1,21 @@
 package com.atos.dynamicdiscount.processor.service.granting;
 
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
 import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,15 +26,34 @@ import lombok.extern.slf4j.Slf4j;
 public class DiscountGrantingService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ProcessingMetrics metrics;
+
+    private static final String ADD_OCC_CALL = "CALL bscs_wd.mcd_wan_pkg.man_addocc(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String PROMO_RESULT_CALL = "CALL grant_promo_Result (?, ?, ?, ?, ?, ?, ?, ?, ?,?)";
 
     // Flag to control procedure call
     @Value("${occ.grant.enabled}")
     private boolean isGrantOccEnabled;
 
+    // Send the OCCs of a contract group as one JDBC batch of procedure calls
+    @Value("${occ.grant.batch.enabled:false}")
+    private boolean isBatchGrantEnabled;
+
+    public boolean isBatchGrantEnabled() {
+        return isBatchGrantEnabled;
+    }
+
     /**
      * Grants offer and ALO discounts by calling the BSCS stored procedure.
      */
     public void grantDiscount(DynDiscEvalHistory eval, DynDiscGrantHistory grant) {
+        if (isBatchGrantEnabled) {
+            List<OccGrant> occs = new ArrayList<>(2);
+            collectOccs(eval, grant, occs);
+            grantBatch(occs);
+            return;
+        }
+
         // Grant Offer discount
         grantDiscountIfValid(eval, grant, "Offer", grant.getOfferDiscAmount(), "");
 
@@ -64,7 +90,7 @@ public class DiscountGrantingService {
 			String remark = eval.getOccRemark() + remarkSuffix;
 
 			if (!isGrantOccEnabled) {
-				jdbcTemplate.update("CALL grant_promo_Result (?, ?, ?, ?, ?, ?, ?, ?, ?,?)", eval.getRequestId(),
+				jdbcTemplate.update(PROMO_RESULT_CALL, eval.getRequestId(),
 						eval.getCustomerId(), eval.getCoId(), validFrom, amount * -1, remark, eval.getOccGlcode(),
 						eval.getOccSncode(), eval.getTmCode(), validFrom);
 
@@ -76,12 +102,13 @@ public class DiscountGrantingService {
             long startTime = System.currentTimeMillis();
 
             jdbcTemplate.update(
-                "CALL bscs_wd.mcd_wan_pkg.man_addocc(?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                ADD_OCC_CALL,
                 eval.getCustomerId(), eval.getCoId(), validFrom, amount * -1,
                 remark, eval.getOccGlcode(), eval.getOccSncode(), eval.getTmCode(), validFrom
             );
 
             long duration = System.currentTimeMillis() - startTime;
+            metrics.recordGrant(duration * 1_000_000);
             log.info("✓ coId={} : {} OCC grant completed in {} ms (AssignId={})",
                      eval.getCoId(), discountType, duration, eval.getAssignId());
 
@@ -100,6 +127,108 @@ public class DiscountGrantingService {
         }
     }
 
+    /**
+     * Grants the offer and ALO OCCs of several contracts in one JDBC batch of procedure calls.
+     */
+    public void grantDiscounts(List<DynDiscGrantEvalDTO> results) {
+        List<OccGrant> occs = new ArrayList<>(results.size() * 2);
+        for (DynDiscGrantEvalDTO result : results) {
+            collectOccs(result.getDynDiscEvalHistory(), result.getDynDiscGrantHistory(), occs);
+        }
+        grantBatch(occs);
+    }
+
+    /**
+     * Collects the OCCs to create for one contract; zero/null amounts are flagged as not created.
+     */
+    private void collectOccs(DynDiscEvalHistory eval, DynDiscGrantHistory grant, List<OccGrant> occs) {
+        collectOcc(eval, grant, "Offer", grant.getOfferDiscAmount(), "", occs);
+        if (Boolean.TRUE.equals(grant.getAloDiscInd())) {
+            collectOcc(eval, grant, "ALO", grant.getAloDiscAmount(), " ALO", occs);
+        }
+    }
+
+    private void collectOcc(DynDiscEvalHistory eval, DynDiscGrantHistory grant, String discountType, Float amount,
+                            String remarkSuffix, List<OccGrant> occs) {
+        if (amount != null && amount > 0) {
+            occs.add(new OccGrant(eval, grant, discountType, amount, remarkSuffix));
+        } else {
+            setOccCreatedFlag(grant, discountType, false);
+            log.info("- coId={} : {} OCC not created (AssignId={}): Zero/null amount.",
+                      eval.getCoId(), discountType, eval.getAssignId());
+        }
+    }
+
+    /**
+     * Executes the OCC calls as one batch and maps the per-row results back to the created flags.
+     * If the batch fails, the calls reported as executed keep their result, and the calls the
+     * driver did not reach are granted one by one.
+     */
+    private void grantBatch(List<OccGrant> occs) {
+        if (occs.isEmpty()) {
+            return;
+        }
+        String sql = isGrantOccEnabled ? ADD_OCC_CALL : PROMO_RESULT_CALL;
+        List<Object[]> params = occs.stream().map(this::occParams).toList();
+
+        long startTime = System.currentTimeMillis();
+        int[] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, params);
+        } catch (DataAccessException ex) {
+            BatchUpdateException batchEx = findBatchUpdateException(ex);
+            if (batchEx == null) {
+                log.error("✗ OCC grant batch of {} calls failed", occs.size(), ex);
+                occs.forEach(occ -> setOccCreatedFlag(occ.grant(), occ.discountType(), false));
+                return;
+            }
+            counts = batchEx.getUpdateCounts();
+            log.error("✗ OCC grant batch failed after {} of {} calls, granting the rest one by one",
+                      counts.length, occs.size(), ex);
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        int executed = Math.min(counts.length, occs.size());
+        for (int i = 0; i < executed; i++) {
+            OccGrant occ = occs.get(i);
+            boolean success = counts[i] != Statement.EXECUTE_FAILED;
+            setOccCreatedFlag(occ.grant(), occ.discountType(), success);
+            if (success) {
+                metrics.recordGrant(duration * 1_000_000 / occs.size());
+                log.info("✓ coId={} : {} OCC grant completed in batch (AssignId={})",
+                         occ.eval().getCoId(), occ.discountType(), occ.eval().getAssignId());
+            } else {
+                log.error("✗ coId={} : {} OCC grant failed in batch (AssignId={})",
+                          occ.eval().getCoId(), occ.discountType(), occ.eval().getAssignId());
+            }
+        }
+        for (OccGrant occ : occs.subList(executed, occs.size())) {
+            grantOcc(occ.eval(), occ.grant(), occ.remarkSuffix(), occ.discountType(), occ.amount());
+        }
+        log.info("✓ OCC grant batch of {} calls completed in {} ms", occs.size(), duration);
+    }
+
+    private Object[] occParams(OccGrant occ) {
+        DynDiscEvalHistory eval = occ.eval();
+        LocalDateTime validFrom = eval.getBillPeriodEndDate().minusDays(1);
+        String remark = eval.getOccRemark() + occ.remarkSuffix();
+        if (!isGrantOccEnabled) {
+            return new Object[] { eval.getRequestId(), eval.getCustomerId(), eval.getCoId(), validFrom,
+                    occ.amount() * -1, remark, eval.getOccGlcode(), eval.getOccSncode(), eval.getTmCode(), validFrom };
+        }
+        return new Object[] { eval.getCustomerId(), eval.getCoId(), validFrom, occ.amount() * -1,
+                remark, eval.getOccGlcode(), eval.getOccSncode(), eval.getTmCode(), validFrom };
+    }
+
+    private static BatchUpdateException findBatchUpdateException(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchUpdateException batchEx) {
+                return batchEx;
+            }
+        }
+        return null;
+    }
+
     /**
      * Sets the OCC created flag for the given discount type.
      */
@@ -110,4 +239,8 @@ public class DiscountGrantingService {
             grant.setAloOccCreated(success);
         }
     }
+
+    private record OccGrant(DynDiscEvalHistory eval, DynDiscGrantHistory grant, String discountType,
+                            Float amount, String remarkSuffix) {
+    }
 }
@@ -0,0 +1,252 @@
+package com.atos.dynamicdiscount.processor.service.granting;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistoryId;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistoryId;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantOutbox;
+import com.atos.dynamicdiscount.processor.config.DataSourceRole;
+import com.atos.dynamicdiscount.processor.service.logging.DiscountLogService;
+import com.atos.dynamicdiscount.repository.DynDiscEvalHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantOutboxRepository;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbox mode of the OCC grant: the evaluation only queues a pending grant in its own
+ * transaction, and a separately sized pool of grant workers drains the outbox in batches,
+ * calls BSCS and records the outcome on the grant history and the contract.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GrantOutboxService {
+
+    private static final String OUTBOX_MODE = "outbox";
+
+    // No ROWNUM limit: Oracle applies it before skipping locked rows, so workers running together
+    // would all pick the same first rows, skip them and find nothing. With SKIP LOCKED, rows are
+    // locked as they are fetched, so the batch is limited by reading only batchSize rows instead.
+    private static final String CLAIM_PENDING = """
+            SELECT request_id, assign_id, customer_id, co_id
+              FROM dyn_disc_grant_outbox
+             WHERE request_id = ?
+               AND status     = 'N'
+               FOR UPDATE SKIP LOCKED
+            """;
+
+    private final DynDiscGrantOutboxRepository outboxRepo;
+    private final DynDiscEvalHistoryRepository evalRepo;
+    private final DynDiscGrantHistoryRepository grantRepo;
+    private final DiscountGrantingService grantService;
+    private final DiscountLogService logService;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+    @Qualifier("grantTaskExecutor")
+    private final ThreadPoolTaskExecutor grantExecutor;
+
+    // Grant mode: "inline" (in the contract transaction) or "outbox" (queued, granted by the grant workers)
+    @Value("${occ.grant.mode:inline}")
+    private String grantMode;
+
+    @Value("${occ.grant.outbox.workers:4}")
+    private int workerCount;
+
+    @Value("${occ.grant.outbox.batch.size:100}")
+    private int batchSize;
+
+    // Wait between polls while the outbox is empty but evaluation is still running
+    @Value("${occ.grant.outbox.poll.interval:1000}")
+    private long pollInterval;
+
+    // Consecutive failed batches after which a worker gives up; pending rows stay for the next run
+    @Value("${occ.grant.outbox.max.failures:5}")
+    private int maxFailures;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isOutboxMode() {
+        return OUTBOX_MODE.equalsIgnoreCase(grantMode);
+    }
+
+    /**
+     * Queues the grant in the current transaction; its OCC flags stay unset until it is granted.
+     */
+    public void enqueue(DynDiscEvalHistory eval, DynDiscGrantHistory grant) {
+        outboxRepo.enqueue(grant.getRequestId(), grant.getAssignId(), eval.getCustomerId(), eval.getCoId());
+        log.info("→ coId={} : OCC grant queued (AssignId={})", eval.getCoId(), grant.getAssignId());
+    }
+
+    /**
+     * Starts the grant workers of a request. They drain its outbox until the evaluation is done
+     * and nothing is pending, which also picks up grants left over by an earlier run.
+     */
+    public List<CompletableFuture<Void>> startWorkers(Integer requestId, BooleanSupplier evaluationDone) {
+        log.info("Starting {} grant workers for request ID: {}", workerCount, requestId);
+        List<CompletableFuture<Void>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(CompletableFuture.runAsync(
+                    () -> DataSourceRole.runAs(DataSourceRole.GRANT, () -> drain(requestId, evaluationDone)), grantExecutor));
+        }
+        return workers;
+    }
+
+    /**
+     * Returns true if grants of the request are still pending in the outbox, such as those
+     * left by a run whose grant workers gave up; checked whatever the current grant mode.
+     */
+    public boolean hasPendingGrants(Integer requestId) {
+        return outboxRepo.countPending(requestId) > 0;
+    }
+
+    /**
+     * Grants what is pending in the outbox of a request with nothing left to evaluate, and
+     * waits until the grant workers are done.
+     */
+    public void grantPending(Integer requestId) {
+        if (!hasPendingGrants(requestId)) {
+            return;
+        }
+        log.info("Granting the pending outbox grants of request ID: {}", requestId);
+        CompletableFuture.allOf(startWorkers(requestId, () -> true).toArray(new CompletableFuture[0])).join();
+    }
+
+    private void drain(Integer requestId, BooleanSupplier evaluationDone) {
+        int failures = 0;
+        while (true) {
+            // Read before draining, so a batch queued just before the end of evaluation is not missed
+            boolean done = evaluationDone.getAsBoolean();
+            int granted;
+            try {
+                granted = grantBatch(requestId);
+                failures = 0;
+            } catch (Exception e) {
+                failures++;
+                log.error("✗ Grant outbox batch failed for request ID: {} ({} in a row): {}", requestId, failures, e.getMessage(), e);
+                if (done && failures >= maxFailures) {
+                    log.error("✗ Grant worker stopping for request ID: {} with {} grants pending.",
+                            requestId, outboxRepo.countPending(requestId));
+                    return;
+                }
+                granted = 0;
+            }
+            if (granted == 0) {
+                if (done && outboxRepo.countPending(requestId) == 0) {
+                    return;
+                }
+                Uninterruptibles.sleepUninterruptibly(pollInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Claims a batch of pending grants, grants their OCCs and records the outcome, all in one
+     * transaction; returns the number of grants processed.
+     */
+    private int grantBatch(Integer requestId) {
+        return transactionTemplate.execute(status -> {
+            List<DynDiscGrantOutbox> pending = claimPending(requestId);
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            Map<Long, DynDiscEvalHistory> evals = evalRepo.findAllById(pending.stream()
+                    .map(row -> new DynDiscEvalHistoryId(row.getRequestId(), row.getAssignId())).toList())
+                    .stream().collect(Collectors.toMap(DynDiscEvalHistory::getAssignId, Function.identity()));
+            Map<Long, DynDiscGrantHistory> grants = grantRepo.findAllById(pending.stream()
+                    .map(row -> new DynDiscGrantHistoryId(row.getRequestId(), row.getAssignId())).toList())
+                    .stream().collect(Collectors.toMap(DynDiscGrantHistory::getAssignId, Function.identity()));
+
+            List<DynDiscGrantEvalDTO> results = new ArrayList<>(pending.size());
+            List<DynDiscGrantOutbox> grantable = new ArrayList<>(pending.size());
+            for (DynDiscGrantOutbox row : pending) {
+                DynDiscEvalHistory eval = evals.get(row.getAssignId());
+                DynDiscGrantHistory grant = grants.get(row.getAssignId());
+                if (eval == null || grant == null) {
+                    discard(row); // Would fail every batch it is claimed in
+                    continue;
+                }
+                results.add(new DynDiscGrantEvalDTO(null, eval, grant));
+                grantable.add(row);
+            }
+
+            if (grantService.isBatchGrantEnabled()) {
+                grantService.grantDiscounts(results);
+            } else {
+                results.forEach(result -> grantService.grantDiscount(result.getDynDiscEvalHistory(), result.getDynDiscGrantHistory()));
+            }
+
+            // The loaded grant histories are managed, so their OCC flags are written on commit
+            for (DynDiscGrantOutbox row : grantable) {
+                logService.recordGrantOutcome(row.getRequestId(), row.getCoId(), grants.get(row.getAssignId()));
+                outboxRepo.markProcessed(row.getRequestId(), row.getAssignId());
+            }
+            log.info("✓ Grant outbox: {} grants processed for request ID: {}", grantable.size(), requestId);
+            return pending.size();
+        });
+    }
+
+    /**
+     * Removes a pending grant without grant history from the outbox and fails its contract, so
+     * the rest of the batch is granted; a resume evaluates the contract again and queues a new grant.
+     */
+    private void discard(DynDiscGrantOutbox row) {
+        String remark = String.format("AssignId=%d: Failed (grant history not found for the pending grant).",
+                row.getAssignId());
+        log.error("✗ coId={} : {}", row.getCoId(), remark);
+        outboxRepo.discard(row.getRequestId(), row.getAssignId());
+        logService.recordGrantFailure(row.getRequestId(), row.getCoId(), remark);
+    }
+
+    /**
+     * Locks up to batchSize pending grants of the request in the current transaction, skipping
+     * the ones other workers hold; one fetch of batchSize rows, so no more rows are locked.
+     */
+    private List<DynDiscGrantOutbox> claimPending(Integer requestId) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CLAIM_PENDING);
+            statement.setFetchSize(batchSize);
+            statement.setInt(1, requestId);
+            return statement;
+        }, rs -> {
+            List<DynDiscGrantOutbox> pending = new ArrayList<>(batchSize);
+            while (pending.size() < batchSize && rs.next()) {
+                DynDiscGrantOutbox row = new DynDiscGrantOutbox();
+                row.setRequestId(rs.getInt("request_id"));
+                row.setAssignId(rs.getLong("assign_id"));
+                row.setCustomerId(rs.getInt("customer_id"));
+                row.setCoId(rs.getInt("co_id"));
+                pending.add(row);
+            }
+            return pending;
+        });
+    }
+}
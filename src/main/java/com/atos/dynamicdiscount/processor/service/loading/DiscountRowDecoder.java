@@ -0,0 +1,94 @@
+package com.atos.dynamicdiscount.processor.service.loading;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.atos.dynamicdiscount.model.dto.DiscountColumns;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+
+/**
+ * Decodes a row of the enrichment query positionally into a {@link DiscountRow}, reading numbers
+ * as primitives and dates as local date-times, without the BigDecimal, Date and Character
+ * wrappers of the JPA mapping. The same columns can be appended to {@link DiscountColumns}
+ * without creating a row object.
+ */
+final class DiscountRowDecoder implements RowMapper<DiscountRow> {
+
+    static final DiscountRowDecoder INSTANCE = new DiscountRowDecoder();
+
+    private DiscountRowDecoder() {
+    }
+
+    @Override
+    public DiscountRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new DiscountRow(
+                getInt(rs, 1),
+                rs.getLong(2),
+                getDate(rs, 3),
+                getInt(rs, 4),
+                getInt(rs, 5),
+                getInt(rs, 6),
+                getInt(rs, 7),
+                getInt(rs, 8),
+                getInt(rs, 9),
+                getDate(rs, 10),
+                rs.getString(11),
+                getInt(rs, 12),
+                getInt(rs, 13),
+                getDate(rs, 14),
+                getChar(rs, 15),
+                getFloat(rs, 16),
+                getInt(rs, 17),
+                getDate(rs, 18),
+                getChar(rs, 19),
+                getFloat(rs, 20));
+    }
+
+    /**
+     * Appends the current row to the columns; the request ID (column 1) is kept once by the builder.
+     */
+    static void appendTo(ResultSet rs, DiscountColumns.Builder columns) throws SQLException {
+        columns.add(
+                rs.getLong(2),
+                getDate(rs, 3),
+                getInt(rs, 4),
+                getInt(rs, 5),
+                getInt(rs, 6),
+                getInt(rs, 7),
+                getInt(rs, 8),
+                getInt(rs, 9),
+                getDate(rs, 10),
+                rs.getString(11),
+                getInt(rs, 12),
+                getInt(rs, 13),
+                getDate(rs, 14),
+                getChar(rs, 15),
+                getFloat(rs, 16),
+                getInt(rs, 17),
+                getDate(rs, 18),
+                getChar(rs, 19),
+                getFloat(rs, 20));
+    }
+
+    private static int getInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? DiscountRow.NULL_INT : value;
+    }
+
+    private static float getFloat(ResultSet rs, int column) throws SQLException {
+        float value = rs.getFloat(column);
+        return rs.wasNull() ? DiscountRow.NULL_PRICE : value;
+    }
+
+    private static long getDate(ResultSet rs, int column) throws SQLException {
+        return DiscountRow.toEpochSecond(rs.getObject(column, LocalDateTime.class));
+    }
+
+    private static char getChar(ResultSet rs, int column) throws SQLException {
+        String value = rs.getString(column);
+        return value == null || value.isEmpty() ? DiscountRow.NULL_CHAR : value.charAt(0);
+    }
+}
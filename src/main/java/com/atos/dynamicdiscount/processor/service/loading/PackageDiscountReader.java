@@ -0,0 +1,130 @@
+package com.atos.dynamicdiscount.processor.service.loading;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.atos.dynamicdiscount.model.dto.DiscountColumns;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.repository.DynDiscAssignRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the discount assignments of a package through JDBC, decoded into {@link DiscountRow}s.
+ * In stream mode the rows come through a forward-only cursor ordered by co_id, and each contract's
+ * rows are handed over as soon as they are complete, so the whole package never has to be held
+ * in memory.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PackageDiscountReader {
+
+    private static final String STREAM_QUERY = DynDiscAssignRepository.DISCOUNTS_BY_PACKAGE_QUERY
+            + "ORDER BY va.co_id, va.assign_id";
+
+    private final DataSource dataSource;
+
+    // Rows fetched per round trip while streaming
+    @Value("${processing.stream.fetch.size:1000}")
+    private int fetchSize;
+
+    private NamedParameterJdbcTemplate streamTemplate;
+
+    @PostConstruct
+    void init() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        streamTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Loads all assignments of the given package at once, grouped by contract (coId).
+     */
+    public Map<Integer, List<DiscountRow>> fetchDiscountsByCoId(Integer packId, Integer requestId, LocalDateTime targetDate) {
+        List<DiscountRow> rows = streamTemplate.query(DynDiscAssignRepository.DISCOUNTS_BY_PACKAGE_QUERY,
+                params(packId, requestId, targetDate), DiscountRowDecoder.INSTANCE);
+        return rows.stream().collect(Collectors.groupingBy(DiscountRow::coId));
+    }
+
+    /**
+     * Loads all assignments of the given package into columns, ordered by co_id, for the columnar
+     * evaluation engine.
+     */
+    public DiscountColumns fetchDiscountColumns(Integer packId, Integer requestId, LocalDateTime targetDate) {
+        DiscountColumns.Builder columns = DiscountColumns.builder(requestId);
+        streamTemplate.query(STREAM_QUERY, params(packId, requestId, targetDate),
+                (RowCallbackHandler) rs -> DiscountRowDecoder.appendTo(rs, columns));
+        return columns.build();
+    }
+
+    /**
+     * Streams the assignments of the given package and calls the consumer once per contract (coId)
+     * with all of its rows. Returns the number of rows read.
+     */
+    public long streamDiscountsByPackage(Integer packId, Integer requestId, LocalDateTime targetDate,
+            BiConsumer<Integer, List<DiscountRow>> contractConsumer) {
+        MapSqlParameterSource params = params(packId, requestId, targetDate);
+
+        ContractGrouper grouper = new ContractGrouper(contractConsumer);
+        streamTemplate.query(STREAM_QUERY, params,
+                (RowCallbackHandler) rs -> grouper.accept(DiscountRowDecoder.INSTANCE.mapRow(rs, 0)));
+        grouper.flush();
+        log.debug("Package ID: {}. Streamed {} discount assignments.", packId, grouper.rowCount);
+        return grouper.rowCount;
+    }
+
+    private static MapSqlParameterSource params(Integer packId, Integer requestId, LocalDateTime targetDate) {
+        return new MapSqlParameterSource()
+                .addValue("packId", packId)
+                .addValue("requestId", requestId)
+                .addValue("targetDate", targetDate);
+    }
+
+    /**
+     * Groups consecutive rows of the same contract; relies on the co_id ordering of the query.
+     */
+    private static final class ContractGrouper {
+
+        private final BiConsumer<Integer, List<DiscountRow>> contractConsumer;
+        private Integer currentCoId;
+        private List<DiscountRow> currentRows = new ArrayList<>();
+        private long rowCount;
+
+        ContractGrouper(BiConsumer<Integer, List<DiscountRow>> contractConsumer) {
+            this.contractConsumer = contractConsumer;
+        }
+
+        void accept(DiscountRow row) {
+            Integer coId = row.coId();
+            if (!coId.equals(currentCoId)) {
+                flush();
+                currentCoId = coId;
+            }
+            currentRows.add(row);
+            rowCount++;
+        }
+
+        void flush() {
+            if (!currentRows.isEmpty()) {
+                contractConsumer.accept(currentCoId, currentRows);
+                currentRows = new ArrayList<>();
+            }
+        }
+    }
+}
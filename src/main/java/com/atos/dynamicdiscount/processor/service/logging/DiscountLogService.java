@@ -2,10 +2,10 @@ package com.atos.dynamicdiscount.processor.service.logging;
 
 import java.time.LocalDateTime;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
-import com.atos.dynamicdiscount.model.entity.DynDiscAssign;
 import com.atos.dynamicdiscount.model.entity.DynDiscContract;
 import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
 import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
@@ -27,6 +27,13 @@ public class DiscountLogService {
     private final DynDiscAssignRepository assignRepo;
     private final DynDiscGrantHistoryRepository grantRepo;
     private final DynDiscEvalHistoryRepository evalRepo;
+    private final LifecycleBatchWriter batchWriter;
+
+    private static final String BATCH_WRITER = "batch";
+
+    // Lifecycle writer: "jpa" (save per entity) or "batch" (JDBC batches flushed on commit), in either transaction mode
+    @Value("${processing.lifecycle.writer:jpa}")
+    private String writerMode;
 
     /**
      * Records the full discount lifecycle by saving contract, evaluation history,
@@ -42,6 +49,15 @@ public class DiscountLogService {
             return;
         }
 
+        if (BATCH_WRITER.equalsIgnoreCase(writerMode)) {
+            if (eval != null && grant != null) {
+                updateContractStatusAndRemark(contract, grant);
+                logGrantDetails(contract, grant);
+            }
+            batchWriter.add(contract, eval, grant, cutoffDate);
+            return;
+        }
+
         if (eval != null && grant != null) {
             updateContractStatusAndRemark(contract, grant);
             saveEvaluationHistory(eval);
@@ -53,7 +69,55 @@ public class DiscountLogService {
         saveContract(contract);
     }
 
+    /**
+     * Marks the lifecycle writes buffered so far, next to a transaction savepoint. Only the batch
+     * writer buffers; JPA writes are undone by the transaction savepoint itself (null mark).
+     */
+    public Object createSavepoint() {
+        return BATCH_WRITER.equalsIgnoreCase(writerMode) ? batchWriter.createSavepoint() : null;
+    }
+
+    /**
+     * Drops the lifecycle writes buffered since {@code savepoint}, after its transaction savepoint was rolled back.
+     */
+    public void rollbackToSavepoint(Object savepoint) {
+        if (savepoint != null) {
+            batchWriter.rollbackToSavepoint(savepoint);
+        }
+    }
+
+    /**
+     * Records the outcome of a grant completed by the outbox workers on its contract.
+     */
+    public void recordGrantOutcome(Integer requestId, Integer coId, DynDiscGrantHistory grant) {
+        DynDiscContract contract = new DynDiscContract();
+        contract.setRequestId(requestId);
+        contract.setCoId(coId);
+        updateContractStatusAndRemark(contract, grant);
+        logGrantDetails(contract, grant);
+        saveContract(contract);
+    }
+
+    /**
+     * Fails the contract of a pending grant the outbox workers could not grant.
+     */
+    public void recordGrantFailure(Integer requestId, Integer coId, String remark) {
+        DynDiscContract contract = new DynDiscContract();
+        contract.setRequestId(requestId);
+        contract.setCoId(coId);
+        contract.setStatus("F");
+        contract.setRemark(remark);
+        saveContract(contract);
+    }
+
     private void updateContractStatusAndRemark(DynDiscContract contract, DynDiscGrantHistory grant) {
+        // The offer flag is always set once granted; unset means the grant is queued in the outbox
+        if (grant.getOfferOccCreated() == null) {
+            contract.setStatus("G");
+            contract.setRemark(String.format("AssignId=%d: Grant pending.", grant.getAssignId()));
+            return;
+        }
+
         boolean offerOccFailed = Boolean.FALSE.equals(grant.getOfferOccCreated()) && grant.getOfferDiscAmount() != 0;
         boolean aloOccFailed = Boolean.FALSE.equals(grant.getAloOccCreated()) && grant.getAloDiscAmount() != 0;
 
@@ -79,9 +143,12 @@ public class DiscountLogService {
     
     
 
+    // The contract row always exists; only its status and remark change, so it is updated in place
     private void saveContract(DynDiscContract contract) {
+        DynDiscContract.checkStatus(contract.getStatus()); // The native update skips the entity's own check
         try {
-            contractRepo.save(contract);
+            contractRepo.updateContractStatusAndRemark(contract.getRequestId(), contract.getCoId(),
+                    contract.getStatus(), contract.getRemark());
             log.debug("DynDiscContract [{}] saved.", contract.getCoId());
         } catch (Exception e) {
             log.error("Error saving DynDiscContract [{}]: {}", contract.getCoId(), e);
@@ -111,18 +178,12 @@ public class DiscountLogService {
 
     private void updateAndSaveAssignment(DynDiscGrantHistory grant, LocalDateTime cutoffDate) {
         try {
-            DynDiscAssign assign = assignRepo.findById(grant.getAssignId())
-                    .orElseThrow(() -> new EntityNotFoundException("Assignment not found: " + grant.getAssignId()));
-
-            assign.setLastAppliedDate(cutoffDate);
-            assign.setApplyCount(grant.getCurrentApplyCount());
-
-            if (Boolean.TRUE.equals(grant.getLastApply())) {
-                assign.setExpireDate(cutoffDate);
+            int updated = assignRepo.updateAppliedState(grant.getAssignId(), cutoffDate, grant.getCurrentApplyCount(),
+                    Boolean.TRUE.equals(grant.getLastApply()) ? 1 : 0);
+            if (updated != 1) {
+                throw new EntityNotFoundException("Assignment not found: " + grant.getAssignId());
             }
-
-            assignRepo.save(assign);
-            log.debug("DynDiscAssign [{}] updated.", assign.getAssignId());
+            log.debug("DynDiscAssign [{}] updated.", grant.getAssignId());
         } catch (Exception e) {
             log.error("Error updating DynDiscAssign [{}]: {}", grant.getAssignId(), e);
             throw e;
@@ -0,0 +1,218 @@
+package com.atos.dynamicdiscount.processor.service.logging;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.google.common.collect.Lists;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffers the lifecycle writes of the current transaction and flushes them right before it
+ * commits, one JDBC batch per table, instead of one JPA merge per entity. Rows are sorted by key
+ * before writing, so concurrent chunks touch the indexes in the same order. A contract rolled back
+ * to its savepoint drops its buffered writes with {@link #rollbackToSavepoint}, so chunk transactions
+ * with a savepoint per contract are supported.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LifecycleBatchWriter {
+
+    private static final String[] EVAL_COLUMNS = { "request_id", "assign_id", "customer_id", "co_id",
+            "bill_period_end_date", "lbc_date", "prgcode", "tmcode", "disc_sncode", "disc_id", "occ_sncode",
+            "occ_glcode", "occ_remark", "offer_sncode", "offer_price", "offer_valid_from", "offer_status",
+            "alo_sncode", "alo_price", "alo_valid_from", "alo_status", "username" };
+
+    private static final String[] GRANT_COLUMNS = { "request_id", "assign_id", "offer_disc_amount", "free_month",
+            "special_month", "offer_capped", "current_apply_count", "last_apply", "alo_disc_amount", "alo_disc_ind",
+            "alo_capped", "note", "offer_occ_created", "alo_occ_created", "username" };
+
+    // History rows are written once per request and assignment, as plain inserts
+    private static final String EVAL_INSERT = insertSql("dyn_disc_eval_history", EVAL_COLUMNS);
+    private static final String GRANT_INSERT = insertSql("dyn_disc_grant_history", GRANT_COLUMNS);
+
+    private static final String ASSIGN_UPDATE = """
+            UPDATE dyn_disc_assign
+            SET last_applied_date = ?, apply_count = ?,
+                expire_date = CASE WHEN ? = 1 THEN ? ELSE expire_date END
+            WHERE assign_id = ?
+            """;
+
+    private static final String CONTRACT_UPDATE = """
+            UPDATE dyn_disc_contract
+            SET status = ?, remark = ?
+            WHERE request_id = ? AND pack_id = ? AND customer_id = ? AND co_id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Rows sent per JDBC batch execution
+    @Value("${processing.lifecycle.flush.size:500}")
+    private int flushSize;
+
+    /**
+     * Buffers the lifecycle of one contract in the current transaction. The evaluation and
+     * grant histories are null when nothing was granted.
+     */
+    public void add(DynDiscContract contract, DynDiscEvalHistory eval, DynDiscGrantHistory grant, LocalDateTime cutoffDate) {
+        DynDiscContract.checkStatus(contract.getStatus()); // Rejected here, while the contract can still fail alone
+        LifecycleBuffer buffer = currentBuffer();
+        if (eval != null && grant != null) {
+            buffer.evals.add(eval);
+            buffer.grants.add(grant);
+            buffer.assignUpdates.add(new AssignUpdate(grant, cutoffDate));
+        }
+        buffer.contracts.add(contract);
+    }
+
+    /**
+     * Marks the current end of the buffer, to be taken with the transaction savepoint of a contract.
+     */
+    public Object createSavepoint() {
+        LifecycleBuffer buffer = currentBuffer();
+        return new BufferMark(buffer.evals.size(), buffer.grants.size(), buffer.assignUpdates.size(),
+                buffer.contracts.size());
+    }
+
+    /**
+     * Drops the writes buffered since the savepoint, whose transaction savepoint was rolled back,
+     * so they are not flushed on commit.
+     */
+    public void rollbackToSavepoint(Object savepoint) {
+        BufferMark mark = (BufferMark) savepoint;
+        LifecycleBuffer buffer = currentBuffer();
+        buffer.evals.subList(mark.evals(), buffer.evals.size()).clear();
+        buffer.grants.subList(mark.grants(), buffer.grants.size()).clear();
+        buffer.assignUpdates.subList(mark.assignUpdates(), buffer.assignUpdates.size()).clear();
+        buffer.contracts.subList(mark.contracts(), buffer.contracts.size()).clear();
+    }
+
+    private LifecycleBuffer currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Batched lifecycle writes require an active transaction.");
+        }
+        LifecycleBuffer buffer = (LifecycleBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            LifecycleBuffer newBuffer = new LifecycleBuffer();
+            TransactionSynchronizationManager.bindResource(this, newBuffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    writeBuffer(newBuffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LifecycleBatchWriter.this);
+                    if (status != STATUS_COMMITTED && !newBuffer.contracts.isEmpty()) {
+                        log.warn("Discarded lifecycle writes of {} contracts on rollback.", newBuffer.contracts.size());
+                    }
+                }
+            });
+            buffer = newBuffer;
+        }
+        return buffer;
+    }
+
+    private void writeBuffer(LifecycleBuffer buffer) {
+        if (buffer.contracts.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        buffer.evals.sort(Comparator.comparing(DynDiscEvalHistory::getRequestId).thenComparing(DynDiscEvalHistory::getAssignId));
+        buffer.grants.sort(Comparator.comparing(DynDiscGrantHistory::getRequestId).thenComparing(DynDiscGrantHistory::getAssignId));
+        buffer.assignUpdates.sort(Comparator.comparing(update -> update.grant().getAssignId()));
+        buffer.contracts.sort(Comparator.comparing(DynDiscContract::getCoId));
+
+        executeBatch(EVAL_INSERT, buffer.evals.stream().map(LifecycleBatchWriter::evalRow).toList());
+        executeBatch(GRANT_INSERT, buffer.grants.stream().map(LifecycleBatchWriter::grantRow).toList());
+        int[] assignCounts = executeBatch(ASSIGN_UPDATE, buffer.assignUpdates.stream().map(LifecycleBatchWriter::assignRow).toList());
+        for (int i = 0; i < assignCounts.length; i++) {
+            if (assignCounts[i] == 0) {
+                throw new EntityNotFoundException("Assignment not found: " + buffer.assignUpdates.get(i).grant().getAssignId());
+            }
+        }
+        executeBatch(CONTRACT_UPDATE, buffer.contracts.stream().map(LifecycleBatchWriter::contractRow).toList());
+
+        log.debug("Flushed lifecycle of {} contracts ({} grants) in {} ms.", buffer.contracts.size(),
+                buffer.grants.size(), System.currentTimeMillis() - start);
+    }
+
+    private int[] executeBatch(String sql, List<Object[]> rows) {
+        int[] counts = new int[rows.size()];
+        int offset = 0;
+        for (List<Object[]> batch : Lists.partition(rows, flushSize)) {
+            int[] batchCounts = jdbcTemplate.batchUpdate(sql, batch);
+            System.arraycopy(batchCounts, 0, counts, offset, batchCounts.length);
+            offset += batch.size();
+        }
+        return counts;
+    }
+
+    private static Object[] evalRow(DynDiscEvalHistory eval) {
+        return new Object[] { eval.getRequestId(), eval.getAssignId(), eval.getCustomerId(), eval.getCoId(),
+                eval.getBillPeriodEndDate(), eval.getLbcDate(), eval.getPrgCode(), eval.getTmCode(),
+                eval.getDiscSncode(), eval.getDiscId(), eval.getOccSncode(), eval.getOccGlcode(), eval.getOccRemark(),
+                eval.getOfferSncode(), eval.getOfferPrice(), eval.getOfferValidFrom(), eval.getOfferStatus(),
+                eval.getAloSncode(), eval.getAloPrice(), eval.getAloValidFrom(), eval.getAloStatus(), eval.getUsername() };
+    }
+
+    private static Object[] grantRow(DynDiscGrantHistory grant) {
+        return new Object[] { grant.getRequestId(), grant.getAssignId(), grant.getOfferDiscAmount(),
+                flag(grant.getFreeMonth()), flag(grant.getSpecialMonth()), flag(grant.getOfferCapped()),
+                grant.getCurrentApplyCount(), flag(grant.getLastApply()), grant.getAloDiscAmount(),
+                flag(grant.getAloDiscInd()), flag(grant.getAloCapped()), grant.getNote(),
+                flag(grant.getOfferOccCreated()), flag(grant.getAloOccCreated()), grant.getUsername() };
+    }
+
+    private static Object[] assignRow(AssignUpdate update) {
+        DynDiscGrantHistory grant = update.grant();
+        return new Object[] { update.cutoffDate(), grant.getCurrentApplyCount(),
+                Boolean.TRUE.equals(grant.getLastApply()) ? 1 : 0, update.cutoffDate(), grant.getAssignId() };
+    }
+
+    private static Object[] contractRow(DynDiscContract contract) {
+        return new Object[] { contract.getStatus(), contract.getRemark(), contract.getRequestId(),
+                contract.getPackId(), contract.getCustomerId(), contract.getCoId() };
+    }
+
+    // Booleans are stored as NUMBER(1), as mapped by the Oracle dialect
+    private static Integer flag(Boolean value) {
+        return value == null ? null : value ? 1 : 0;
+    }
+
+    private static String insertSql(String table, String[] columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    }
+
+    private record AssignUpdate(DynDiscGrantHistory grant, LocalDateTime cutoffDate) {
+    }
+
+    // Buffer sizes at a savepoint; rows are only appended until the buffer is written
+    private record BufferMark(int evals, int grants, int assignUpdates, int contracts) {
+    }
+
+    private static final class LifecycleBuffer {
+        private final List<DynDiscEvalHistory> evals = new ArrayList<>();
+        private final List<DynDiscGrantHistory> grants = new ArrayList<>();
+        private final List<AssignUpdate> assignUpdates = new ArrayList<>();
+        private final List<DynDiscContract> contracts = new ArrayList<>();
+    }
+}
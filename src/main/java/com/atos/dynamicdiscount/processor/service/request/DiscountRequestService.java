@@ -10,6 +10,7 @@ import com.atos.dynamicdiscount.model.entity.DynDiscContract;
 import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
 import com.atos.dynamicdiscount.model.entity.DynDiscStatistic;
 import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantOutboxRepository;
 import com.atos.dynamicdiscount.repository.DynDiscPackageRepository;
 import com.atos.dynamicdiscount.repository.DynDiscRequestRepository;
 import com.atos.dynamicdiscount.repository.DynDiscStatisticRepository;
@@ -33,6 +34,7 @@ public class DiscountRequestService {
     private final DynDiscContractRepository contractRepo;
     private final DynDiscPackageRepository packageRepo;
     private final DynDiscStatisticRepository statisticRepo;
+    private final DynDiscGrantOutboxRepository outboxRepo;
 
     @Value("${request.package.size:10000}")
     private int packageSize;
@@ -146,7 +148,9 @@ public class DiscountRequestService {
 
         // Determine final status based on the presence of failed contracts
         
+        // Grants still pending in the outbox ('G') count as failures, so the request can be resumed
         boolean hasFailure = contractRepo.countByReqIdAndStatus(requestId, "F") > 0 
+                || contractRepo.countByReqIdAndStatus(requestId, "G") > 0
                 || packageRepo.countByReqIdAndStatus(requestId, "F") > 0;
 
         String newStatus = hasFailure ? "F" : "P";
@@ -167,6 +171,17 @@ public class DiscountRequestService {
         log.info("Request ID {}: Finalization completed with status '{}'.", requestId, newStatus);
     }
 
+    /**
+     * Marks a request as failed ('F') when its run could not be completed, so it can be resumed.
+     */
+    @Transactional
+    public void markRequestFailed(Integer requestId) {
+        if (requestRepo.updateStatusAndEndDate(requestId, "F", LocalDateTime.now()) == 0) {
+            throw new EntityNotFoundException("Request not found for ID: " + requestId);
+        }
+        log.info("Request ID {}: Marked as 'F' (Failed), it can be resumed.", requestId);
+    }
+
     /**
      * Resets failed contracts and packages for the specified request.
      */
@@ -197,6 +212,21 @@ public class DiscountRequestService {
         return updatedContracts;
     }
 
+    /**
+     * Sets a request with no contract to reset back to 'W' when grants are still pending in its
+     * outbox (contracts 'G'), so the run can grant them; returns false when there are none.
+     */
+    @Transactional
+    public boolean resumePendingGrants(Integer requestId) {
+        long pending = outboxRepo.countPending(requestId);
+        if (pending == 0) {
+            return false;
+        }
+        log.info("Request ID {}: {} grants pending in the outbox.", requestId, pending);
+        requestRepo.updateStatusAndEndDate(requestId, "W", LocalDateTime.now());
+        return true;
+    }
+
     /**
      * Retrieves contracts by their status for a specified request.
      */
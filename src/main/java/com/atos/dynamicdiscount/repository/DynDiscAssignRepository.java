@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,7 +20,11 @@ public interface DynDiscAssignRepository extends JpaRepository<DynDiscAssign, Lo
 	Optional<DynDiscAssign> findLatestAssign(@Param("coId") Integer coId, @Param("discSncode") Integer discSncode);
 	
 	
-	@Query(nativeQuery = true,value = """
+	/**
+	 * Enrichment query for the discount assignments of one package (offer/ALO status and prices).
+	 * Shared with the streaming reader, which appends an ORDER BY co_id.
+	 */
+	String DISCOUNTS_BY_PACKAGE_QUERY = """
 			WITH
 			  /*--------------------------------------------
 			   1) Fetch Valid Discount Assignments
@@ -293,14 +298,32 @@ public interface DynDiscAssignRepository extends JpaRepository<DynDiscAssign, Lo
 			  va.alo_status AS alostatus,
 			  GREATEST(va.alo_price, 0) AS aloprice
 			FROM va_offer_alo_full_view va
-						""")
-			List<DynDiscAssignDTO> fetchDiscountsByPackage (@Param("packId") Integer packId,@Param("requestId")Integer requestId, @Param("targetDate") LocalDateTime targetDate);
+						""";
+
+	@Query(nativeQuery = true, value = DISCOUNTS_BY_PACKAGE_QUERY)
+	List<DynDiscAssignDTO> fetchDiscountsByPackage (@Param("packId") Integer packId,@Param("requestId")Integer requestId, @Param("targetDate") LocalDateTime targetDate);
 
 	    
 	    // Fetch contracts by request ID using native SQL
 	    @Query(value = "SELECT * FROM dyn_disc_contract WHERE request_id = :requestId", nativeQuery = true)
 	    List<DynDiscAssignDTO> findByRequestId(@Param("requestId") Integer requestId);
 
+	/**
+	 * Records a grant on the assignment without loading it first: sets the last applied date and
+	 * apply count, and expires the assignment on its last apply. Returns the affected-row count.
+	 * The statement is the same for every row, so JDBC batches it.
+	 */
+	@Modifying
+	@Query(nativeQuery = true, value = """
+			UPDATE dyn_disc_assign
+			SET last_applied_date = :appliedDate,
+			    apply_count = :applyCount,
+			    expire_date = CASE WHEN :lastApply = 1 THEN :appliedDate ELSE expire_date END
+			WHERE assign_id = :assignId
+			""")
+	int updateAppliedState(@Param("assignId") Long assignId, @Param("appliedDate") LocalDateTime appliedDate,
+			@Param("applyCount") Integer applyCount, @Param("lastApply") int lastApply);
+
 
 
 
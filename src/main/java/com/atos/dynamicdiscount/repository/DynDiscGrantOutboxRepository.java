@@ -0,0 +1,49 @@
+package com.atos.dynamicdiscount.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantOutbox;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantOutboxId;
+
+@Repository
+public interface DynDiscGrantOutboxRepository extends JpaRepository<DynDiscGrantOutbox, DynDiscGrantOutboxId> {
+
+	// Queue a pending grant
+	@Modifying
+	@Query(value = """
+			INSERT INTO dyn_disc_grant_outbox (request_id, assign_id, customer_id, co_id, status, entry_date)
+			VALUES (:requestId, :assignId, :customerId, :coId, 'N', SYSDATE)
+			""", nativeQuery = true)
+	int enqueue(@Param("requestId") Integer requestId, @Param("assignId") Long assignId,
+			@Param("customerId") Integer customerId, @Param("coId") Integer coId);
+
+	@Modifying
+	@Query(value = """
+			UPDATE dyn_disc_grant_outbox
+			   SET status = 'P', processed_date = SYSDATE
+			 WHERE request_id = :requestId
+			   AND assign_id  = :assignId
+			""", nativeQuery = true)
+	int markProcessed(@Param("requestId") Integer requestId, @Param("assignId") Long assignId);
+
+	// Drop a pending grant that cannot be granted; its contract is evaluated again on resume
+	@Modifying
+	@Query(value = """
+			DELETE FROM dyn_disc_grant_outbox
+			 WHERE request_id = :requestId
+			   AND assign_id  = :assignId
+			""", nativeQuery = true)
+	int discard(@Param("requestId") Integer requestId, @Param("assignId") Long assignId);
+
+	@Query(value = """
+			SELECT COUNT(*)
+			  FROM dyn_disc_grant_outbox
+			 WHERE request_id = :requestId
+			   AND status     = 'N'
+			""", nativeQuery = true)
+	long countPending(@Param("requestId") Integer requestId);
+}
@@ -0,0 +1,58 @@
+package com.atos.dynamicdiscount.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free recorder keeping the most recent latency samples in a ring buffer,
+ * used to compute percentiles over a sliding window.
+ */
+public class LatencyRecorder {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong(); // Long, so it cannot wrap to a negative size
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Records one latency sample in nanoseconds.
+     */
+    public void record(long nanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), nanos);
+    }
+
+    /**
+     * Returns the number of samples currently held (bounded by the capacity).
+     */
+    public int size() {
+        return (int) Math.min(count.get(), samples.length());
+    }
+
+    /**
+     * Returns the given percentile (0-100) of the held samples in milliseconds, or 0 when empty.
+     */
+    public double percentileMillis(double percentile) {
+        int size = size();
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(rank, size - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * Discards all samples, starting a new window.
+     */
+    public void reset() {
+        count.set(0);
+    }
+}
@@ -0,0 +1,27 @@
+package com.atos.dynamicdiscount.util;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Runtime signals of the batch pipeline: contract and OCC grant latencies. Completed
+ * contracts are counted per run, on its {@link com.atos.dynamicdiscount.processor.manager.ConcurrencyLimits}.
+ */
+@Component
+@Getter
+public class ProcessingMetrics {
+
+    private static final int WINDOW_SIZE = 4096;
+
+    private final LatencyRecorder contractLatency = new LatencyRecorder(WINDOW_SIZE);
+    private final LatencyRecorder grantLatency = new LatencyRecorder(WINDOW_SIZE);
+
+    public void recordContract(long nanos) {
+        contractLatency.record(nanos);
+    }
+
+    public void recordGrant(long nanos) {
+        grantLatency.record(nanos);
+    }
+}
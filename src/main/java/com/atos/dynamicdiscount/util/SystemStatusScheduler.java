@@ -3,16 +3,17 @@ package com.atos.dynamicdiscount.util;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 
-import javax.sql.DataSource;
-
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import com.zaxxer.hikari.HikariDataSource;
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.config.PoolStatus;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,8 +27,14 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class SystemStatusScheduler {
 
-    private final DataSource dataSource;
+    private final ConnectionPools connectionPools;
     private final ThreadPoolTaskExecutor executor;
+    @Qualifier("packageTaskExecutor")
+    private final ThreadPoolTaskExecutor packageExecutor;
+    @Qualifier("chunkTaskExecutor")
+    private final ThreadPoolTaskExecutor chunkExecutor;
+    @Qualifier("grantTaskExecutor")
+    private final ThreadPoolTaskExecutor grantExecutor;
 
     @Value("${system.status.scheduler.enabled:true}")
     private boolean isSchedulerEnabled;
@@ -43,7 +50,10 @@ public class SystemStatusScheduler {
         }
 
         log.info("========== System Status ==========");
-        logThreadPoolStatus();
+        logThreadPoolStatus("Thread Pool", executor);
+        logThreadPoolStatus("Package Pool", packageExecutor);
+        logThreadPoolStatus("Chunk Pool", chunkExecutor);
+        logThreadPoolStatus("Grant Pool", grantExecutor);
         logJvmMemoryStatus();
         logCPUUtilization();
         logHikariCPStatus();
@@ -55,16 +65,17 @@ public class SystemStatusScheduler {
      */
 
     
-    private void logThreadPoolStatus() { 
+    private void logThreadPoolStatus(String poolName, ThreadPoolTaskExecutor executor) { 
         if (executor != null) {
             ThreadPoolExecutor threadPoolExecutor = executor.getThreadPoolExecutor();
-            log.info("Thread Pool Status: " +
+            log.info("{} Status: " +
                      "Active Threads = {}, " +
                      "Queue Size = {}, " +
                      "Completed Tasks = {}, " +
                      "Core Pool Size = {}, " +
                      "Maximum Pool Size = {}, " +
                      "Current Pool Capacity = {}",
+                     poolName,
                      threadPoolExecutor.getActiveCount(),
                      threadPoolExecutor.getQueue().size(),
                      threadPoolExecutor.getCompletedTaskCount(),
@@ -72,7 +83,7 @@ public class SystemStatusScheduler {
                      threadPoolExecutor.getMaximumPoolSize(),
                      threadPoolExecutor.getPoolSize());
         } else {
-            log.warn("Thread Pool Status: Stats unavailable");
+            log.warn("{} Status: Stats unavailable", poolName);
         }
     }
 
@@ -124,20 +135,23 @@ public class SystemStatusScheduler {
     }
 
     /**
-     * Logs HikariCP connection pool statistics.
+     * Logs HikariCP connection pool statistics, one line per pool.
      */
     private void logHikariCPStatus() {
-        if (dataSource instanceof HikariDataSource) {
-            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
-            log.info("HikariCP: Active Connections={}, Idle Connections={}, Total Connections={}, "
-                   + "Threads Awaiting Connection={}, Max Connections={}",
-                hikariDataSource.getHikariPoolMXBean().getActiveConnections(),
-                hikariDataSource.getHikariPoolMXBean().getIdleConnections(),
-                hikariDataSource.getHikariPoolMXBean().getTotalConnections(),
-                hikariDataSource.getHikariPoolMXBean().getThreadsAwaitingConnection(),
-                hikariDataSource.getMaximumPoolSize());
-        } else {
+        List<PoolStatus> pools = connectionPools.getStatus();
+        if (pools.isEmpty()) {
             log.warn("HikariCP: Stats unavailable");
+            return;
+        }
+        for (PoolStatus pool : pools) {
+            log.info("HikariCP [{}]: Active Connections={}, Idle Connections={}, Total Connections={}, "
+                   + "Threads Awaiting Connection={}, Max Connections={}",
+                pool.getRole(),
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                pool.getMaxConnections());
         }
     }
 
@@ -0,0 +1,177 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroupId;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscType;
+
+class ConfigSnapshotCodecTest {
+
+	private static final String NON_ASCII = "Réduction d'été – 夏季折扣 ✓";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void snapshotReadsBackAsWritten() throws IOException {
+		ConfigSnapshot snapshot = snapshot();
+		Path file = dir.resolve("config.snapshot");
+
+		ConfigSnapshotCodec.write(snapshot, file);
+		ConfigSnapshot read = ConfigSnapshotCodec.read(file);
+
+		assertThat(read.getVersion()).isEqualTo(snapshot.getVersion());
+		assertThat(read.getSignatures()).isEqualTo(snapshot.getSignatures());
+		assertThat(read.getDynDiscTypeMap()).isEqualTo(snapshot.getDynDiscTypeMap());
+		assertThat(read.getDynDiscConfMap()).isEqualTo(snapshot.getDynDiscConfMap());
+		assertThat(read.getDynDiscOfferMap()).isEqualTo(snapshot.getDynDiscOfferMap());
+		assertThat(read.getDynDiscPriceGroupMap()).isEqualTo(snapshot.getDynDiscPriceGroupMap());
+		assertThat(read.getDynDiscSpecialMonthMap()).isEqualTo(snapshot.getDynDiscSpecialMonthMap());
+		assertThat(read.getDynDiscFreeMonthMap()).isEqualTo(snapshot.getDynDiscFreeMonthMap());
+
+		// Nulls stay null instead of turning into defaults
+		DynDiscConf empty = read.getDynDiscConfMap().get(2);
+		assertThat(empty.getDuration()).isNull();
+		assertThat(empty.getValidFrom()).isNull();
+		assertThat(empty.getAloDiscInd()).isNull();
+		assertThat(empty.getName()).isNull();
+		DynDiscOffer emptyOffer = read.getDynDiscOfferMap().get(2).get(0);
+		assertThat(emptyOffer.getOfferDiscAmt()).isNull();
+		assertThat(emptyOffer.getFreeMonthInd()).isNull();
+		assertThat(read.getDynDiscConfMap().get(1).getName()).isEqualTo(NON_ASCII);
+
+		// Indexes are rebuilt from the rows
+		assertThat(read.getOfferIndex().findBestOffer(1, 100, 200, 0)).isEqualTo(offer(11, 1, 100, 200));
+		assertThat(read.getPriceGroupIndex().rulesFor(1).isRestricted()).isTrue();
+		assertThat(read.getMonthSchedule(11).isFree(2)).isTrue();
+		assertThat(read.getMonthSchedule(11).specialOfferAmount(3)).isEqualTo(7.5f);
+	}
+
+	@Test
+	void fileWithOtherMagicNumberIsRejected() throws IOException {
+		Path file = written();
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(0, 0xCAFEBABE);
+		Files.write(file, bytes);
+
+		assertThatThrownBy(() -> ConfigSnapshotCodec.read(file))
+				.isInstanceOf(IOException.class)
+				.hasMessageStartingWith("Not a configuration snapshot file");
+	}
+
+	@Test
+	void fileWithOtherFormatVersionIsRejected() throws IOException {
+		Path file = written();
+		byte[] bytes = Files.readAllBytes(file);
+		ByteBuffer.wrap(bytes).putInt(4, 2);
+		Files.write(file, bytes);
+
+		assertThatThrownBy(() -> ConfigSnapshotCodec.read(file))
+				.isInstanceOf(IOException.class)
+				.hasMessageStartingWith("Unsupported configuration snapshot format 2");
+	}
+
+	@Test
+	void truncatedOrEmptyFileIsRejected() throws IOException {
+		Path file = written();
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+		Path empty = Files.createFile(dir.resolve("empty.snapshot"));
+
+		assertThatThrownBy(() -> ConfigSnapshotCodec.read(file))
+				.isInstanceOf(IOException.class)
+				.hasMessageStartingWith("Corrupt configuration snapshot file");
+		assertThatThrownBy(() -> ConfigSnapshotCodec.read(empty))
+				.isInstanceOf(IOException.class)
+				.hasMessageStartingWith("Not a configuration snapshot file");
+	}
+
+	private Path written() throws IOException {
+		Path file = dir.resolve("config.snapshot");
+		ConfigSnapshotCodec.write(snapshot(), file);
+		return file;
+	}
+
+	private static ConfigSnapshot snapshot() {
+		Map<ConfigTable, String> signatures = new EnumMap<>(ConfigTable.class);
+		signatures.put(ConfigTable.CONF, "12:4711");
+		signatures.put(ConfigTable.OFFER, NON_ASCII);
+
+		DynDiscType type = new DynDiscType();
+		type.setTypeId(1);
+		type.setDescription(NON_ASCII);
+
+		DynDiscConf conf = new DynDiscConf();
+		conf.setDiscId(1);
+		conf.setName(NON_ASCII);
+		conf.setDescription("");
+		conf.setDiscSncode(900);
+		conf.setDuration(12);
+		conf.setOccSncode(1001);
+		conf.setOccGlcode("GL1");
+		conf.setOccRemark("Remise 10 €");
+		conf.setValidFrom(LocalDateTime.of(2025, 1, 1, 0, 0));
+		conf.setValidTo(LocalDateTime.of(2027, 12, 31, 23, 59, 59, 123_456_789));
+		conf.setAloDiscInd(true);
+		conf.setSuspInd(false);
+		conf.setCreatedAt(LocalDateTime.of(1969, 7, 20, 20, 17));
+		conf.setUsername("DYN_DISC");
+		DynDiscConf empty = new DynDiscConf();
+		empty.setDiscId(2);
+
+		DynDiscOffer emptyOffer = new DynDiscOffer();
+		emptyOffer.setOfferId(21);
+		emptyOffer.setDiscId(2);
+
+		DynDiscPriceGroup priceGroup = new DynDiscPriceGroup();
+		priceGroup.setId(new DynDiscPriceGroupId(1, "Ü1"));
+		priceGroup.setRestrictInd(true);
+
+		DynDiscSpecialMonth specialMonth = new DynDiscSpecialMonth();
+		specialMonth.setId(new DynDiscSpecialMonthId(11, 3));
+		specialMonth.setOfferDiscAmt(7.5f);
+		specialMonth.setAloDiscAmt(-0.25f);
+		DynDiscFreeMonth freeMonth = new DynDiscFreeMonth();
+		freeMonth.setId(new DynDiscFreeMonthId(11, 2));
+
+		return ConfigSnapshot.build(42, signatures, List.of(type), List.of(conf, empty),
+				List.of(offer(11, 1, 100, 200), offer(12, 1, -1, -1), emptyOffer), List.of(priceGroup),
+				List.of(specialMonth), List.of(freeMonth));
+	}
+
+	private static DynDiscOffer offer(int offerId, int discId, int tmcode, int sncode) {
+		DynDiscOffer offer = new DynDiscOffer();
+		offer.setOfferId(offerId);
+		offer.setDiscId(discId);
+		offer.setTmcode(tmcode);
+		offer.setSncode(sncode);
+		offer.setOfferDiscAmt(5.5f);
+		offer.setAloDiscAmt(0f);
+		offer.setEligStartDate(null);
+		offer.setEligEndDate(LocalDateTime.of(2030, 1, 1, 0, 0));
+		offer.setFreeMonthInd(true);
+		offer.setSpecialMonthInd(offerId == 11);
+		return offer;
+	}
+}
@@ -0,0 +1,81 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.repository.DynDiscConfRepository;
+import com.atos.dynamicdiscount.repository.DynDiscFreeMonthRepository;
+import com.atos.dynamicdiscount.repository.DynDiscOfferRepository;
+import com.atos.dynamicdiscount.repository.DynDiscPriceGroupRepository;
+import com.atos.dynamicdiscount.repository.DynDiscSpecialMonthRepository;
+import com.atos.dynamicdiscount.repository.DynDiscTypeRepository;
+
+class DynDiscConfigurationsTest {
+
+	private final ConfigChangeDetector changeDetector = mock(ConfigChangeDetector.class);
+	private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+	private final DynDiscConfigurations configurations = new DynDiscConfigurations(mock(DynDiscTypeRepository.class),
+			mock(DynDiscConfRepository.class), mock(DynDiscPriceGroupRepository.class), mock(DynDiscOfferRepository.class),
+			mock(DynDiscSpecialMonthRepository.class), mock(DynDiscFreeMonthRepository.class), changeDetector,
+			eventPublisher);
+
+	@Test
+	void requestChecksForChangesWithoutPoller() {
+		start(false);
+
+		configurations.refreshBeforeRequest();
+
+		verify(changeDetector).readSignatures();
+		verify(eventPublisher, never()).publishEvent(any());
+		assertThat(configurations.getSnapshot().getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void requestUsesCurrentSnapshotWithPoller() {
+		start(true);
+
+		configurations.refreshBeforeRequest();
+
+		verify(changeDetector, never()).readSignatures();
+	}
+
+	@Test
+	void changedTableIsReloadedAndPublished() {
+		start(false);
+		when(changeDetector.readSignatures()).thenReturn(signatures("2"));
+
+		configurations.refreshBeforeRequest();
+
+		verify(eventPublisher, times(1)).publishEvent(any(ConfigurationsRefreshedEvent.class));
+		assertThat(configurations.getSnapshot().getVersion()).isEqualTo(2);
+	}
+
+	private void start(boolean pollEnabled) {
+		ReflectionTestUtils.setField(configurations, "pollEnabled", pollEnabled);
+		ReflectionTestUtils.setField(configurations, "snapshotFile", "");
+		when(changeDetector.readSignatures()).thenReturn(signatures("1"));
+		configurations.loadConfigurations();
+		clearInvocations(changeDetector);
+	}
+
+	private static Map<ConfigTable, String> signatures(String conf) {
+		Map<ConfigTable, String> signatures = new EnumMap<>(ConfigTable.class);
+		for (ConfigTable table : ConfigTable.values()) {
+			signatures.put(table, table == ConfigTable.CONF ? conf : "1");
+		}
+		return signatures;
+	}
+}
@@ -0,0 +1,48 @@
+package com.atos.dynamicdiscount.processor.config;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+class ThreadPoolConfigTest {
+
+	@Test
+	void workerPoolsHoldTheWorkersOfConcurrentRuns() {
+		ThreadPoolConfig config = new ThreadPoolConfig();
+		ReflectionTestUtils.setField(config, "maxConcurrentPackages", 2);
+		ReflectionTestUtils.setField(config, "maxConcurrentChunks", 3);
+		ReflectionTestUtils.setField(config, "grantOutboxWorkers", 2);
+		ReflectionTestUtils.setField(config, "maxConcurrentRequests", 2);
+		ThreadPoolTaskExecutor chunkExecutor = config.chunkTaskExecutor();
+		ThreadPoolTaskExecutor grantExecutor = config.grantTaskExecutor();
+		CountDownLatch runsDone = new CountDownLatch(1);
+		try {
+			// Two runs start all of their workers, which only return at the end of the run
+			startWorkers(chunkExecutor, 2 * 6, runsDone);
+			startWorkers(grantExecutor, 2 * 2, runsDone);
+
+			// A third run is rejected
+			assertThatThrownBy(() -> startWorkers(chunkExecutor, 1, runsDone))
+					.isInstanceOf(RejectedExecutionException.class);
+			assertThatThrownBy(() -> startWorkers(grantExecutor, 1, runsDone))
+					.isInstanceOf(RejectedExecutionException.class);
+		} finally {
+			runsDone.countDown();
+			chunkExecutor.shutdown();
+			grantExecutor.shutdown();
+		}
+	}
+
+	private static void startWorkers(ThreadPoolTaskExecutor executor, int count, CountDownLatch runsDone) {
+		for (int i = 0; i < count; i++) {
+			executor.execute(() -> Uninterruptibles.awaitUninterruptibly(runsDone));
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
+
+class AdaptiveConcurrencyControllerTest {
+
+	private AdaptiveConcurrencyController controller;
+
+	@BeforeEach
+	void setUp() {
+		controller = new AdaptiveConcurrencyController(mock(ConnectionPools.class), new ProcessingMetrics());
+		ReflectionTestUtils.setField(controller, "enabled", true);
+		ReflectionTestUtils.setField(controller, "minChunkWorkers", 2);
+		ReflectionTestUtils.setField(controller, "maxChunkWorkers", 40);
+		ReflectionTestUtils.setField(controller, "increaseStep", 2);
+		ReflectionTestUtils.setField(controller, "backoffFactor", 0.75);
+		ReflectionTestUtils.setField(controller, "latencyTolerance", 2.0);
+	}
+
+	@Test
+	void runsInParallelHaveTheirOwnLimits() {
+		ConcurrencyLimits first = controller.begin(1, 2, 2);
+		ConcurrencyLimits second = controller.begin(2, 3, 2);
+
+		assertThat(first).isNotSameAs(second);
+		assertThat(first.getChunkLimit().getLimit()).isEqualTo(4);
+		assertThat(second.getChunkLimit().getLimit()).isEqualTo(6);
+
+		first.contractsCompleted(100);
+		controller.adjust();
+
+		assertThat(first.getChunkLimit().getLimit()).isEqualTo(6);
+		assertThat(second.getChunkLimit().getLimit()).isEqualTo(8);
+		assertThat(controller.getDecisions()).extracting(ConcurrencyDecision::getRequestId).containsExactly(2, 1);
+	}
+
+	@Test
+	void endingOneRunKeepsControllingTheOther() {
+		ConcurrencyLimits first = controller.begin(1, 2, 2);
+		ConcurrencyLimits second = controller.begin(2, 2, 2);
+
+		controller.end(first);
+		controller.adjust();
+
+		assertThat(first.getChunkLimit().getLimit()).isEqualTo(4);
+		assertThat(second.getChunkLimit().getLimit()).isEqualTo(6);
+		assertThat(controller.getDecisions()).extracting(ConcurrencyDecision::getRequestId).containsExactly(2);
+	}
+}
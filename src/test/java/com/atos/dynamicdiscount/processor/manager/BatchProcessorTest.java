@@ -0,0 +1,151 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.service.evaluation.ColumnarEvaluator;
+import com.atos.dynamicdiscount.processor.service.granting.GrantOutboxService;
+import com.atos.dynamicdiscount.processor.service.loading.PackageDiscountReader;
+import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscPackageRepository;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
+
+class BatchProcessorTest {
+
+	private static final int CONTRACTS = 10;
+
+	private final DynDiscPackageRepository packageRepo = mock(DynDiscPackageRepository.class);
+	private final DynDiscContractRepository contractRepo = mock(DynDiscContractRepository.class);
+	private final ContractProcessor contractProcessor = mock(ContractProcessor.class);
+	private final PackageDiscountReader discountReader = mock(PackageDiscountReader.class);
+	private final GrantOutboxService grantOutbox = mock(GrantOutboxService.class);
+	private final AtomicReference<ConcurrencyLimits> limits = new AtomicReference<>();
+	private ThreadPoolTaskExecutor packageExecutor;
+	private ThreadPoolTaskExecutor chunkExecutor;
+	private ExecutorService virtualExecutor;
+	private BatchProcessor processor;
+
+	@BeforeEach
+	void setUp() {
+		when(packageRepo.fetchAvailablePackagesWithStatus(anyInt(), eq("I"))).thenReturn(List.of(1));
+		when(contractRepo.fetchContractsForPackage(anyInt(), anyInt())).thenReturn(contracts());
+		when(discountReader.fetchDiscountsByCoId(anyInt(), anyInt(), any())).thenReturn(Collections.emptyMap());
+
+		ConnectionPools connectionPools = mock(ConnectionPools.class);
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		AdaptiveConcurrencyController controller = spy(new AdaptiveConcurrencyController(connectionPools, metrics));
+		doAnswer(invocation -> {
+			ConcurrencyLimits started = (ConcurrencyLimits) invocation.callRealMethod();
+			limits.set(started);
+			return started;
+		}).when(controller).begin(any(), anyInt(), anyInt());
+
+		packageExecutor = executor(2);
+		chunkExecutor = executor(4);
+		virtualExecutor = Executors.newCachedThreadPool();
+		processor = new BatchProcessor(packageRepo, contractRepo, contractProcessor, discountReader,
+				mock(ColumnarEvaluator.class), grantOutbox, packageExecutor, chunkExecutor,
+				virtualExecutor, connectionPools, controller, metrics);
+		ReflectionTestUtils.setField(processor, "maxConcurrentPackages", 2);
+		ReflectionTestUtils.setField(processor, "maxConcurrentChunks", 2);
+		ReflectionTestUtils.setField(processor, "contractsPerChunk", CONTRACTS);
+		ReflectionTestUtils.setField(processor, "loaderMode", "list");
+		ReflectionTestUtils.setField(processor, "prefetchDepth", 1);
+		ReflectionTestUtils.setField(processor, "transactionMode", "chunk");
+		ReflectionTestUtils.setField(processor, "commitInterval", 5);
+		ReflectionTestUtils.setField(processor, "executionMode", "platform");
+		processor.initDbPermits();
+	}
+
+	@AfterEach
+	void tearDown() {
+		packageExecutor.shutdown();
+		chunkExecutor.shutdown();
+		virtualExecutor.shutdown();
+	}
+
+	@Test
+	void chunkTransactionsCountEveryContract() {
+		processor.processRequestPackages(request());
+
+		verify(contractProcessor, times(2)).processContractsInTransaction(any(), any(), any(), any(), any());
+		verify(contractProcessor, never()).processContract(any(), any(), any(), any());
+		assertThat(limits.get().getCompletedContracts()).isEqualTo(CONTRACTS);
+		verify(packageRepo).updatePackageStatusAndEndDate(eq(1), eq("P"), any());
+	}
+
+	@Test
+	void failedGroupIsRetriedContractByContractAndCountedOnce() {
+		doThrow(new IllegalStateException("commit failed")).doNothing()
+				.when(contractProcessor).processContractsInTransaction(any(), any(), any(), any(), any());
+
+		processor.processRequestPackages(request());
+
+		verify(contractProcessor, times(5)).processContract(any(), any(), any(), any());
+		assertThat(limits.get().getCompletedContracts()).isEqualTo(CONTRACTS);
+		verify(contractRepo, never()).updateContractStatusAndRemark(anyInt(), anyInt(), eq("F"), anyString());
+	}
+
+	@Test
+	void requestWithoutPackagesGrantsWhatIsPendingInTheOutbox() {
+		when(packageRepo.fetchAvailablePackagesWithStatus(anyInt(), eq("I"))).thenReturn(List.of());
+
+		processor.processRequestPackages(request());
+
+		verify(grantOutbox).grantPending(1);
+		verify(contractProcessor, never()).processContract(any(), any(), any(), any());
+	}
+
+	private static DynDiscRequest request() {
+		DynDiscRequest request = new DynDiscRequest();
+		request.setRequestId(1);
+		return request;
+	}
+
+	private static List<DynDiscContract> contracts() {
+		List<DynDiscContract> contracts = new ArrayList<>();
+		for (int coId = 1; coId <= CONTRACTS; coId++) {
+			DynDiscContract contract = new DynDiscContract();
+			contract.setRequestId(1);
+			contract.setPackId(1);
+			contract.setCoId(coId);
+			contracts.add(contract);
+		}
+		return contracts;
+	}
+
+	private static ThreadPoolTaskExecutor executor(int size) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(size);
+		executor.setMaxPoolSize(size);
+		executor.initialize();
+		return executor;
+	}
+}
@@ -0,0 +1,182 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.SavepointManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
+import com.atos.dynamicdiscount.processor.service.evaluation.DiscountEvaluationService;
+import com.atos.dynamicdiscount.processor.service.granting.DiscountGrantingService;
+import com.atos.dynamicdiscount.processor.service.granting.GrantOutboxService;
+import com.atos.dynamicdiscount.processor.service.logging.DiscountLogService;
+import com.atos.dynamicdiscount.processor.service.logging.LifecycleBatchWriter;
+import com.atos.dynamicdiscount.repository.DynDiscAssignRepository;
+import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscEvalHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantHistoryRepository;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
+
+import jakarta.persistence.EntityManager;
+
+class ContractProcessorTest {
+
+	private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 9, 30, 0, 0);
+
+	private final DiscountEvaluationService evalService = mock(DiscountEvaluationService.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final EntityManager entityManager = mock(EntityManager.class);
+	private final Map<String, List<Object[]>> written = new HashMap<>();
+	private ContractProcessor processor;
+
+	@BeforeEach
+	void setUp() {
+		LifecycleBatchWriter batchWriter = new LifecycleBatchWriter(jdbcTemplate);
+		ReflectionTestUtils.setField(batchWriter, "flushSize", 500);
+		DiscountLogService logService = new DiscountLogService(mock(DynDiscContractRepository.class),
+				mock(DynDiscAssignRepository.class), mock(DynDiscGrantHistoryRepository.class),
+				mock(DynDiscEvalHistoryRepository.class), batchWriter);
+		ReflectionTestUtils.setField(logService, "writerMode", "batch");
+		when(jdbcTemplate.batchUpdate(any(String.class), anyList())).thenAnswer(invocation -> {
+			List<Object[]> rows = invocation.getArgument(1);
+			written.computeIfAbsent(table(invocation.getArgument(0)), table -> new ArrayList<>()).addAll(rows);
+			int[] counts = new int[rows.size()];
+			Arrays.fill(counts, 1);
+			return counts;
+		});
+
+		processor = new ContractProcessor(evalService, mock(DiscountGrantingService.class), mock(GrantOutboxService.class),
+				logService, new SavepointTransactionManager(), new ProcessingMetrics());
+		ReflectionTestUtils.setField(processor, "entityManager", entityManager);
+		processor.init();
+	}
+
+	@Test
+	void contractRolledBackToItsSavepointDropsItsBufferedWrites() {
+		List<DynDiscContract> contracts = List.of(contract(1), contract(2), contract(3));
+		contracts.forEach(contract -> when(evalService.evaluateDiscounts(eq(contract), any(), any(), any()))
+				.thenReturn(granted(contract)));
+		// The second contract fails once its writes are buffered
+		doNothing().doThrow(new IllegalStateException("write failed")).doNothing().when(entityManager).flush();
+		List<Integer> failed = new ArrayList<>();
+
+		processor.processContractsInTransaction(request(), contracts, Map.of(), null,
+				(contract, e) -> failed.add(contract.getCoId()));
+
+		assertThat(failed).containsExactly(2);
+		assertThat(written.get("dyn_disc_eval_history")).extracting(row -> row[1]).containsExactly(1L, 3L);
+		assertThat(written.get("dyn_disc_grant_history")).extracting(row -> row[1]).containsExactly(1L, 3L);
+		assertThat(written.get("dyn_disc_assign")).extracting(row -> row[4]).containsExactly(1L, 3L);
+		assertThat(written.get("dyn_disc_contract")).extracting(row -> row[5]).containsExactly(1, 3);
+	}
+
+	private static String table(String sql) {
+		for (String table : List.of("dyn_disc_eval_history", "dyn_disc_grant_history", "dyn_disc_assign", "dyn_disc_contract")) {
+			if (sql.contains(table + " ") || sql.contains(table + "\n")) {
+				return table;
+			}
+		}
+		throw new IllegalArgumentException(sql);
+	}
+
+	private static DynDiscRequest request() {
+		DynDiscRequest request = new DynDiscRequest();
+		request.setRequestId(1);
+		request.setBillPeriodEndDate(CUTOFF);
+		return request;
+	}
+
+	private static DynDiscContract contract(int coId) {
+		DynDiscContract contract = new DynDiscContract();
+		contract.setRequestId(1);
+		contract.setPackId(1);
+		contract.setCustomerId(10);
+		contract.setCoId(coId);
+		return contract;
+	}
+
+	private static DynDiscGrantEvalDTO granted(DynDiscContract contract) {
+		long assignId = contract.getCoId();
+		DynDiscEvalHistory eval = new DynDiscEvalHistory();
+		eval.setRequestId(1);
+		eval.setAssignId(assignId);
+		eval.setCoId(contract.getCoId());
+		DynDiscGrantHistory grant = new DynDiscGrantHistory();
+		grant.setRequestId(1);
+		grant.setAssignId(assignId);
+		grant.setOfferDiscAmount(5f);
+		grant.setAloDiscAmount(0f);
+		grant.setCurrentApplyCount(1);
+		grant.setOfferOccCreated(true);
+		grant.setAloOccCreated(false);
+		DynDiscGrantEvalDTO result = new DynDiscGrantEvalDTO();
+		result.setDynDiscContract(contract);
+		result.setDynDiscEvalHistory(eval);
+		result.setDynDiscGrantHistory(grant);
+		return result;
+	}
+
+	/**
+	 * Transaction manager without a database, whose savepoints do nothing; the synchronizations
+	 * run as with a real one.
+	 */
+	private static final class SavepointTransactionManager extends AbstractPlatformTransactionManager {
+
+		@Override
+		protected Object doGetTransaction() {
+			return new NoOpSavepoints();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	}
+
+	private static final class NoOpSavepoints implements SavepointManager {
+
+		@Override
+		public Object createSavepoint() {
+			return new Object();
+		}
+
+		@Override
+		public void rollbackToSavepoint(Object savepoint) {
+		}
+
+		@Override
+		public void releaseSavepoint(Object savepoint) {
+		}
+	}
+}
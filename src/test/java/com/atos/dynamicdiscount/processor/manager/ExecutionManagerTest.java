@@ -0,0 +1,80 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.DynDiscConfigurations;
+import com.atos.dynamicdiscount.processor.service.request.DiscountRequestService;
+
+class ExecutionManagerTest {
+
+	private final DiscountRequestService requestService = mock(DiscountRequestService.class);
+	private final BatchProcessor batchProcessor = mock(BatchProcessor.class);
+	private final DynDiscConfigurations configurations = mock(DynDiscConfigurations.class);
+	private final ExecutionManager manager = new ExecutionManager();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(manager, "requestService", requestService);
+		ReflectionTestUtils.setField(manager, "batchProcessor", batchProcessor);
+		ReflectionTestUtils.setField(manager, "configurations", configurations);
+		when(configurations.getSnapshot()).thenReturn(mock(ConfigSnapshot.class));
+		when(requestService.fetchRequestById(5)).thenReturn(request(5, "F"));
+		when(requestService.resetFailedContractsAndPackages(5)).thenReturn(3);
+	}
+
+	@Test
+	void runThatCannotStartLeavesTheRequestResumable() {
+		doThrow(new IllegalStateException("Worker pools are saturated")).when(batchProcessor).processRequestPackages(any());
+
+		manager.processDiscounts("r", "5");
+
+		verify(requestService).markRequestFailed(5);
+		verify(requestService, never()).finalizeRequest(any());
+	}
+
+	@Test
+	void completedRunIsFinalized() {
+		manager.processDiscounts("r", "5");
+
+		verify(requestService).finalizeRequest(5);
+		verify(requestService, never()).markRequestFailed(any());
+	}
+
+	@Test
+	void requestWithOnlyPendingGrantsIsResumed() {
+		when(requestService.resetFailedContractsAndPackages(5)).thenReturn(0);
+		when(requestService.resumePendingGrants(5)).thenReturn(true);
+
+		manager.processDiscounts("r", "5");
+
+		verify(batchProcessor).processRequestPackages(any());
+		verify(requestService).finalizeRequest(5);
+	}
+
+	@Test
+	void requestWithNothingLeftIsSkipped() {
+		when(requestService.resetFailedContractsAndPackages(5)).thenReturn(0);
+
+		manager.processDiscounts("r", "5");
+
+		verify(batchProcessor, never()).processRequestPackages(any());
+	}
+
+	private static DynDiscRequest request(int requestId, String status) {
+		DynDiscRequest request = new DynDiscRequest();
+		request.setRequestId(requestId);
+		request.setStatus(status);
+		return request;
+	}
+}
@@ -0,0 +1,149 @@
+package com.atos.dynamicdiscount.processor.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscRequest;
+import com.atos.dynamicdiscount.processor.config.ConnectionPools;
+import com.atos.dynamicdiscount.processor.service.evaluation.ColumnarEvaluator;
+import com.atos.dynamicdiscount.processor.service.granting.GrantOutboxService;
+import com.atos.dynamicdiscount.processor.service.loading.PackageDiscountReader;
+import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscPackageRepository;
+import com.atos.dynamicdiscount.util.ProcessingMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the execution modes (platform and virtual threads) and transaction modes (contract
+ * and chunk) of {@link BatchProcessor} on the same request, with the database replaced by
+ * calls that sleep for a fixed latency per contract and per commit. Not part of the regular
+ * build; run it with {@code mvn test -Dtest=ExecutionModeBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExecutionModeBenchmarkTest {
+
+	private static final int PACKAGES = 8;
+	private static final int CONTRACTS_PER_PACKAGE = 500;
+	private static final int CONCURRENT_PACKAGES = 4;
+	private static final int CHUNKS_PER_PACKAGE = 4;
+	private static final long CONTRACT_MILLIS = 2; // Statements of one contract
+	private static final long COMMIT_MILLIS = 3; // One commit round trip
+
+	@Test
+	void compareModes() throws Exception {
+		List<String> report = new ArrayList<>();
+		for (String executionMode : List.of("platform", "virtual")) {
+			for (String transactionMode : List.of("contract", "chunk")) {
+				run(executionMode, transactionMode); // Warm-up
+				long millis = run(executionMode, transactionMode);
+				int contracts = PACKAGES * CONTRACTS_PER_PACKAGE;
+				report.add(String.format("%-8s %-8s %6d ms %8.1f contracts/s", executionMode, transactionMode, millis,
+						contracts * 1000.0 / Math.max(1, millis)));
+			}
+		}
+		log.info("Execution mode benchmark ({} contracts, {} ms per contract, {} ms per commit):",
+				PACKAGES * CONTRACTS_PER_PACKAGE, CONTRACT_MILLIS, COMMIT_MILLIS);
+		report.forEach(log::info);
+	}
+
+	private long run(String executionMode, String transactionMode) throws Exception {
+		DynDiscPackageRepository packageRepo = mock(DynDiscPackageRepository.class);
+		DynDiscContractRepository contractRepo = mock(DynDiscContractRepository.class);
+		ContractProcessor contractProcessor = mock(ContractProcessor.class);
+		PackageDiscountReader discountReader = mock(PackageDiscountReader.class);
+		AtomicInteger processed = new AtomicInteger();
+
+		when(packageRepo.fetchAvailablePackagesWithStatus(anyInt(), eq("I")))
+				.thenReturn(IntStream.rangeClosed(1, PACKAGES).boxed().toList());
+		when(contractRepo.fetchContractsForPackage(anyInt(), anyInt()))
+				.thenAnswer(invocation -> contracts(invocation.getArgument(0)));
+		when(discountReader.fetchDiscountsByCoId(anyInt(), anyInt(), any())).thenReturn(Collections.emptyMap());
+		doAnswer(invocation -> {
+			Thread.sleep(CONTRACT_MILLIS + COMMIT_MILLIS);
+			processed.incrementAndGet();
+			return null;
+		}).when(contractProcessor).processContract(any(), any(), any(), any());
+		doAnswer(invocation -> {
+			List<?> contracts = invocation.getArgument(1);
+			Thread.sleep(CONTRACT_MILLIS * contracts.size() + COMMIT_MILLIS);
+			processed.addAndGet(contracts.size());
+			return null;
+		}).when(contractProcessor).processContractsInTransaction(any(), any(), any(), any(), any());
+
+		ConnectionPools connectionPools = mock(ConnectionPools.class);
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		ThreadPoolTaskExecutor packageExecutor = executor("Package-", CONCURRENT_PACKAGES);
+		ThreadPoolTaskExecutor chunkExecutor = executor("Chunk-", CONCURRENT_PACKAGES * CHUNKS_PER_PACKAGE);
+		ExecutorService virtualExecutor = Executors.newCachedThreadPool();
+		try {
+			BatchProcessor processor = new BatchProcessor(packageRepo, contractRepo, contractProcessor, discountReader,
+					mock(ColumnarEvaluator.class), mock(GrantOutboxService.class), packageExecutor, chunkExecutor,
+					virtualExecutor, connectionPools, new AdaptiveConcurrencyController(connectionPools, metrics), metrics);
+			ReflectionTestUtils.setField(processor, "maxConcurrentPackages", CONCURRENT_PACKAGES);
+			ReflectionTestUtils.setField(processor, "maxConcurrentChunks", CHUNKS_PER_PACKAGE);
+			ReflectionTestUtils.setField(processor, "contractsPerChunk", 100);
+			ReflectionTestUtils.setField(processor, "loaderMode", "list");
+			ReflectionTestUtils.setField(processor, "prefetchDepth", 1);
+			ReflectionTestUtils.setField(processor, "transactionMode", transactionMode);
+			ReflectionTestUtils.setField(processor, "commitInterval", 25);
+			ReflectionTestUtils.setField(processor, "executionMode", executionMode);
+			ReflectionTestUtils.setField(processor, "dbPermitCount", CONCURRENT_PACKAGES * CHUNKS_PER_PACKAGE);
+			processor.initDbPermits();
+
+			DynDiscRequest request = new DynDiscRequest();
+			request.setRequestId(1);
+			long start = System.currentTimeMillis();
+			processor.processRequestPackages(request);
+			long millis = System.currentTimeMillis() - start;
+
+			assertThat(processed.get()).isEqualTo(PACKAGES * CONTRACTS_PER_PACKAGE);
+			return millis;
+		} finally {
+			packageExecutor.shutdown();
+			chunkExecutor.shutdown();
+			virtualExecutor.shutdown();
+		}
+	}
+
+	private static List<DynDiscContract> contracts(int packageId) {
+		List<DynDiscContract> contracts = new ArrayList<>(CONTRACTS_PER_PACKAGE);
+		for (int i = 0; i < CONTRACTS_PER_PACKAGE; i++) {
+			DynDiscContract contract = new DynDiscContract();
+			contract.setRequestId(1);
+			contract.setPackId(packageId);
+			contract.setCoId(packageId * CONTRACTS_PER_PACKAGE + i);
+			contracts.add(contract);
+		}
+		return contracts;
+	}
+
+	private static ThreadPoolTaskExecutor executor(String prefix, int size) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(size);
+		executor.setMaxPoolSize(size);
+		executor.setThreadNamePrefix(prefix);
+		executor.initialize();
+		return executor;
+	}
+}
@@ -0,0 +1,99 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import static com.atos.dynamicdiscount.processor.service.evaluation.EvaluationFixture.CUTOFF;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+
+/**
+ * Runs the same contracts through the object engine ({@link DiscountEvaluationService}) and the
+ * columnar engine ({@link ColumnarEvaluator}) and requires the same result for every contract.
+ */
+class ColumnarEvaluatorTest {
+
+	private final ColumnarEvaluator columnar = new ColumnarEvaluator();
+	private final DiscountEvaluationService object = EvaluationFixture.objectEngine(EvaluationFixture.memo(false));
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(columnar, "engine", "columnar");
+		ReflectionTestUtils.setField(columnar, "username", "DYN_DISC");
+		ReflectionTestUtils.setField(columnar, "parallelism", 4);
+		ReflectionTestUtils.setField(columnar, "sliceSize", 64);
+		columnar.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		columnar.shutdown();
+	}
+
+	@Test
+	void enginesGiveTheSameResults() {
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(11, 3000);
+
+		List<String> statuses = assertSameResults(contracts, EvaluationFixture.snapshot(1));
+
+		assertThat(statuses).contains("null", "S", "F");
+	}
+
+	@Test
+	void contractWithMissingConfigurationFlagsFailsAlone() {
+		// Unset indicators and amounts, which the rules unbox
+		ConfigSnapshot cfg = ConfigSnapshot.build(2, Map.of(), List.of(),
+				List.of(EvaluationFixture.conf(1, null, null, 12, null, false),
+						EvaluationFixture.conf(3, null, null, null, false, null),
+						EvaluationFixture.conf(4, null, null, 3, true, false)),
+				List.of(EvaluationFixture.offer(12, 1, -1, -1, 3f, 1f, null, null, false, false),
+						EvaluationFixture.offer(31, 3, -1, -1, 5f, 0f, null, null, false, false),
+						EvaluationFixture.offer(41, 4, -1, 200, null, 1f, null, null, null, false),
+						EvaluationFixture.offer(42, 4, -1, 201, 2f, 1f, null, null, false, false)),
+				List.of(), List.of(), List.of());
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(5, 1000);
+
+		List<String> statuses = assertSameResults(contracts, cfg);
+
+		// Contracts hitting a missing value fail, the others of the package are still evaluated
+		assertThat(statuses).contains("null", "S", "F");
+		EvaluationBatch batch = columnar.evaluate(EvaluationFixture.columns(contracts), CUTOFF, cfg);
+		long nullValueFailures = contracts.keySet().stream()
+				.map(coId -> batch.result(EvaluationFixture.contract(coId)).getDynDiscContract())
+				.filter(contract -> "F".equals(contract.getStatus()) && contract.getRemark().contains("null"))
+				.count();
+		assertThat(nullValueFailures).isPositive();
+	}
+
+	@Test
+	void contractWithoutAssignmentsIsSkipped() {
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(3, 10);
+		EvaluationBatch batch = columnar.evaluate(EvaluationFixture.columns(contracts), CUTOFF, EvaluationFixture.snapshot(1));
+
+		DynDiscGrantEvalDTO result = batch.result(EvaluationFixture.contract(10_000));
+
+		assertThat(result.getDynDiscContract().getStatus()).isEqualTo("S");
+		assertThat(result.getDynDiscContract().getRemark()).isEqualTo("No valid assignment.");
+	}
+
+	// Returns the status of each contract; a granted contract has none
+	private List<String> assertSameResults(Map<Integer, List<DiscountRow>> contracts, ConfigSnapshot cfg) {
+		EvaluationBatch batch = columnar.evaluate(EvaluationFixture.columns(contracts), CUTOFF, cfg);
+		return contracts.entrySet().stream().map(entry -> {
+			int coId = entry.getKey();
+			DynDiscGrantEvalDTO expected = object.evaluateDiscounts(EvaluationFixture.contract(coId), entry.getValue(),
+					CUTOFF, cfg);
+			DynDiscGrantEvalDTO actual = batch.result(EvaluationFixture.contract(coId));
+			assertThat(actual).as("contract %s", coId).isEqualTo(expected);
+			return String.valueOf(actual.getDynDiscContract().getStatus());
+		}).toList();
+	}
+}
@@ -0,0 +1,162 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import static com.atos.dynamicdiscount.processor.service.evaluation.EvaluationFixture.CUTOFF;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks the single-pass evaluation of {@link DiscountEvaluationService} against the multi-pass
+ * one it replaced (partition into valid and invalid assignments, then pick the latest valid one).
+ */
+@Slf4j
+class DiscountEvaluationServiceTest {
+
+	private final ConfigSnapshot cfg = EvaluationFixture.snapshot(1);
+	private final DiscountMemo memo = EvaluationFixture.memo(false);
+	private final DiscountValidator validator = new DiscountValidator(memo);
+	private final DiscountEvaluationService service = EvaluationFixture.objectEngine(memo);
+	private final DiscountCalculator calculator = (DiscountCalculator) ReflectionTestUtils.getField(service, "discountCalculator");
+
+	@Test
+	void singlePassGivesTheResultsOfTheMultiPassEvaluation() {
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(42, 2000);
+
+		Set<ValidationReason> reasons = EnumSet.noneOf(ValidationReason.class);
+		Set<String> statuses = new HashSet<>();
+		contracts.forEach((coId, rows) -> {
+			DynDiscGrantEvalDTO expected = multiPass(EvaluationFixture.contract(coId), rows, CUTOFF);
+			DynDiscGrantEvalDTO actual = service.evaluateDiscounts(EvaluationFixture.contract(coId), rows, CUTOFF, cfg);
+
+			assertThat(actual).as("contract %s", coId).isEqualTo(expected);
+			rows.forEach(row -> {
+				ValidationReason reason = validator.validate(row, CUTOFF, cfg).reason();
+				if (reason != null) {
+					reasons.add(reason);
+				}
+			});
+			statuses.add(String.valueOf(actual.getDynDiscContract().getStatus()));
+		});
+
+		// Every rule fails somewhere, and contracts end granted, skipped and failed
+		assertThat(reasons).containsExactlyInAnyOrder(ValidationReason.values());
+		assertThat(statuses).containsExactlyInAnyOrder("null", "S", "F");
+	}
+
+	@Test
+	void latestValidAssignmentWinsByDateThenById() {
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(7, 500);
+
+		contracts.forEach((coId, rows) -> {
+			DynDiscGrantEvalDTO result = service.evaluateDiscounts(EvaluationFixture.contract(coId), rows, CUTOFF, cfg);
+			List<DiscountRow> valid = rows.stream().filter(row -> validator.validate(row, CUTOFF, cfg).isValid()).toList();
+			if (result.getDynDiscGrantHistory() != null) {
+				DiscountRow latest = valid.stream()
+						.max(Comparator.comparingLong(DiscountRow::assignDate).thenComparingLong(DiscountRow::assignId))
+						.orElseThrow();
+				assertThat(result.getDynDiscGrantHistory().getAssignId()).as("contract %s", coId).isEqualTo(latest.assignId());
+			} else if (!"F".equals(result.getDynDiscContract().getStatus())) {
+				assertThat(valid).as("contract %s", coId).isEmpty();
+			}
+		});
+	}
+
+	/**
+	 * Compares the time per contract of both evaluations. Not part of the regular build; run it with
+	 * {@code mvn test -Dtest=DiscountEvaluationServiceTest -Dbenchmark=true}.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void compareWithMultiPass() {
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(1, 20_000);
+		// Only the evaluation is timed, not the logging of the service
+		Logger serviceLog = (Logger) LoggerFactory.getLogger(DiscountEvaluationService.class);
+		Level level = serviceLog.getLevel();
+		serviceLog.setLevel(Level.OFF);
+		try {
+			for (int round = 0; round < 5; round++) {
+				long multiPass = time(contracts, (contract, rows) -> multiPass(contract, rows, CUTOFF));
+				long singlePass = time(contracts, (contract, rows) -> service.evaluateDiscounts(contract, rows, CUTOFF, cfg));
+				log.info("Round {}: multi-pass {} ns/contract, single pass {} ns/contract.", round,
+						multiPass / contracts.size(), singlePass / contracts.size());
+			}
+		} finally {
+			serviceLog.setLevel(level);
+		}
+	}
+
+	private static long time(Map<Integer, List<DiscountRow>> contracts,
+			BiFunction<DynDiscContract, List<DiscountRow>, DynDiscGrantEvalDTO> evaluation) {
+		long start = System.nanoTime();
+		contracts.forEach((coId, rows) -> evaluation.apply(EvaluationFixture.contract(coId), rows));
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * The evaluation before the single pass: partition, then pick the latest valid assignment,
+	 * with the outcome of each valid one kept aside for the calculator.
+	 */
+	private DynDiscGrantEvalDTO multiPass(DynDiscContract contract, List<DiscountRow> discounts, LocalDateTime cutoffDate) {
+		try {
+			if (discounts == null || discounts.isEmpty()) {
+				return DiscountEvaluationService.buildResult(contract, null, null, "S", "No valid assignment.");
+			}
+			Map<Long, ValidationOutcome> discountErrors = new HashMap<>();
+			Map<Long, ValidationOutcome> matched = new HashMap<>();
+
+			Map<Boolean, List<DiscountRow>> parts = discounts.stream()
+					.collect(Collectors.partitioningBy(d -> {
+						ValidationOutcome outcome = validator.validate(d, cutoffDate, cfg);
+						if (outcome.isValid()) {
+							matched.put(d.assignId(), outcome);
+						} else {
+							discountErrors.put(d.assignId(), outcome);
+						}
+						return outcome.isValid();
+					}));
+			List<DiscountRow> valid = Collections.unmodifiableList(parts.get(true));
+
+			if (valid.isEmpty()) {
+				return DiscountEvaluationService.buildResult(contract, null, null, "S",
+						DiscountEvaluationService.noValidDiscountRemark(discountErrors));
+			}
+
+			DiscountRow latest = valid.stream()
+					.max(Comparator.comparingLong(DiscountRow::assignDate).thenComparingLong(DiscountRow::assignId))
+					.get();
+			DynDiscGrantHistory grant = calculator.compute(contract, matched.get(latest.assignId()), cfg);
+			DynDiscEvalHistory eval = DiscountEvaluationService.buildEvalHistory(matched.get(latest.assignId()), grant,
+					cutoffDate, "DYN_DISC");
+			return DiscountEvaluationService.buildResult(contract, eval, grant, null, null);
+		} catch (Exception ex) {
+			String msg = "Error during discount evaluation for contract " + contract.getCoId() + ": " + ex.getMessage();
+			return DiscountEvaluationService.buildResult(contract, null, null, "F", msg);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import static com.atos.dynamicdiscount.processor.service.evaluation.EvaluationFixture.CUTOFF;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+import com.atos.dynamicdiscount.processor.config.ConfigurationsRefreshedEvent;
+
+class DiscountMemoTest {
+
+	private static final DiscountRow ROW = new DiscountRow(7, 100, 1_000, 900, 1, 2, DiscountRow.NULL_INT, 10, 1, 2_000,
+			"10", 100, 200, 3_000, 'A', 10f, 500, 3_000, 'A', 8f);
+
+	private final DiscountMemo memo = EvaluationFixture.memo(true);
+	private final AtomicInteger computations = new AtomicInteger();
+
+	@Test
+	void identicalInputsAreComputedOnce() {
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+		memo.amounts(1, 1, 11, 3, 10f, 8f, this::amounts);
+		memo.amounts(1, 1, 11, 3, 10f, 8f, this::amounts);
+
+		assertThat(computations).hasValue(2);
+		assertThat(memo.getStatus()).allSatisfy(status -> {
+			assertThat(status.getHits()).isEqualTo(1);
+			assertThat(status.getMisses()).isEqualTo(1);
+			assertThat(status.getHitRate()).isEqualTo(0.5);
+			assertThat(status.getSize()).isEqualTo(1);
+		});
+	}
+
+	@Test
+	void everyInputOfTheRulesIsPartOfTheVerdictKey() {
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+
+		memo.verdict(ROW, CUTOFF, 2, this::verdict);
+		memo.verdict(ROW, CUTOFF.plusDays(1), 1, this::verdict);
+		memo.verdict(with(ROW, 2, ROW.applyCount(), ROW.ovwApplyCount(), ROW.prgcode()), CUTOFF, 1, this::verdict);
+		memo.verdict(with(ROW, ROW.discId(), 3, ROW.ovwApplyCount(), ROW.prgcode()), CUTOFF, 1, this::verdict);
+		memo.verdict(with(ROW, ROW.discId(), ROW.applyCount(), 4, ROW.prgcode()), CUTOFF, 1, this::verdict);
+		memo.verdict(with(ROW, ROW.discId(), ROW.applyCount(), ROW.ovwApplyCount(), "20"), CUTOFF, 1, this::verdict);
+
+		assertThat(computations).hasValue(7);
+		assertThat(memo.getStatus().get(0).getHits()).isZero();
+	}
+
+	@Test
+	void everyInputOfTheAmountsIsPartOfTheAmountKey() {
+		memo.amounts(1, 1, 11, 3, 10f, 8f, this::amounts);
+
+		memo.amounts(2, 1, 11, 3, 10f, 8f, this::amounts);
+		memo.amounts(1, 2, 11, 3, 10f, 8f, this::amounts);
+		memo.amounts(1, 1, 12, 3, 10f, 8f, this::amounts);
+		memo.amounts(1, 1, 11, 4, 10f, 8f, this::amounts);
+		memo.amounts(1, 1, 11, 3, 9f, 8f, this::amounts);
+		memo.amounts(1, 1, 11, 3, 10f, 7f, this::amounts);
+
+		assertThat(computations).hasValue(7);
+		assertThat(memo.getStatus().get(1).getHits()).isZero();
+	}
+
+	@Test
+	void memoizedEvaluationGivesTheResultsOfTheUnmemoizedOne() {
+		ConfigSnapshot cfg = EvaluationFixture.snapshot(1);
+		DiscountEvaluationService memoized = EvaluationFixture.objectEngine(memo);
+		DiscountEvaluationService plain = EvaluationFixture.objectEngine(EvaluationFixture.memo(false));
+		Map<Integer, List<DiscountRow>> contracts = EvaluationFixture.contracts(23, 3000);
+
+		contracts.forEach((coId, rows) -> assertThat(
+				memoized.evaluateDiscounts(EvaluationFixture.contract(coId), rows, CUTOFF, cfg))
+				.as("contract %s", coId)
+				.isEqualTo(plain.evaluateDiscounts(EvaluationFixture.contract(coId), rows, CUTOFF, cfg)));
+
+		assertThat(memo.getStatus()).allSatisfy(status -> assertThat(status.getHits()).isPositive());
+	}
+
+	@Test
+	void changedConfigurationDropsEntriesAndStatistics() {
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+
+		memo.onConfigurationsRefreshed(new ConfigurationsRefreshedEvent());
+
+		assertThat(memo.getStatus()).allSatisfy(status -> {
+			assertThat(status.getHits()).isZero();
+			assertThat(status.getMisses()).isZero();
+			assertThat(status.getSize()).isZero();
+		});
+		memo.verdict(ROW, CUTOFF, 1, this::verdict);
+		assertThat(computations).hasValue(2);
+	}
+
+	@Test
+	void disabledMemoAlwaysComputes() {
+		DiscountMemo disabled = EvaluationFixture.memo(false);
+		Supplier<DiscountMemo.RuleVerdict> rules = this::verdict;
+
+		disabled.verdict(ROW, CUTOFF, 1, rules);
+		disabled.verdict(ROW, CUTOFF, 1, rules);
+
+		assertThat(computations).hasValue(2);
+		assertThat(disabled.getStatus()).allSatisfy(status -> assertThat(status.getMisses()).isZero());
+	}
+
+	private DiscountMemo.RuleVerdict verdict() {
+		computations.incrementAndGet();
+		return new DiscountMemo.RuleVerdict(null, null);
+	}
+
+	private DiscountMemo.GrantAmounts amounts() {
+		computations.incrementAndGet();
+		return new DiscountMemo.GrantAmounts(5f, 2f, false, false, false, false, false, true);
+	}
+
+	private static DiscountRow with(DiscountRow row, int discId, int applyCount, int ovwApplyCount, String prgcode) {
+		return new DiscountRow(row.requestId(), row.assignId(), row.assignDate(), row.discSncode(), discId, applyCount,
+				ovwApplyCount, row.customerId(), row.coId(), row.lbcDate(), prgcode, row.tmCode(), row.offerSnCode(),
+				row.offerValidFromDate(), row.offerStatus(), row.offerPrice(), row.aloSnCode(), row.aloValidFromDate(),
+				row.aloStatus(), row.aloPrice());
+	}
+}
@@ -0,0 +1,208 @@
+package com.atos.dynamicdiscount.processor.service.evaluation;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.atos.dynamicdiscount.model.dto.DiscountColumns;
+import com.atos.dynamicdiscount.model.dto.DiscountRow;
+import com.atos.dynamicdiscount.model.entity.DynDiscConf;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscFreeMonthId;
+import com.atos.dynamicdiscount.model.entity.DynDiscOffer;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroup;
+import com.atos.dynamicdiscount.model.entity.DynDiscPriceGroupId;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonth;
+import com.atos.dynamicdiscount.model.entity.DynDiscSpecialMonthId;
+import com.atos.dynamicdiscount.processor.config.ConfigSnapshot;
+
+/**
+ * Configuration and random contracts shared by the evaluation tests. Valid discounts sit next to
+ * expired, not yet valid, unconfigured, limit-reached, price-group restricted and prohibited,
+ * suspended, on-hold and not eligible ones; assignment dates repeat, so ties are decided by the
+ * assignment id, and a few offer prices are missing, which fails the contract.
+ */
+final class EvaluationFixture {
+
+	static final int REQUEST_ID = 7;
+	static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 9, 30, 0, 0);
+
+	private static final long[] ASSIGN_DATES = { date(2025, 12, 15), date(2026, 2, 1), date(2026, 2, 1),
+			date(2026, 5, 10), date(2026, 8, 20) };
+	private static final int[] DISC_IDS = { 1, 1, 2, 3, 4, 5, 6 };
+	private static final int[] TM_CODES = { 100, 300, DiscountRow.NULL_INT };
+	private static final int[] SN_CODES = { 200, 201 };
+	private static final String[] PRG_CODES = { "10", "20", "30" };
+	private static final char[] OFFER_STATUSES = { 'A', 'A', 'S', 'O' };
+	private static final int[] APPLY_COUNTS = { DiscountRow.NULL_INT, 0, 1, 2, 5, 11, 12 };
+	private static final int[] OVW_APPLY_COUNTS = { DiscountRow.NULL_INT, DiscountRow.NULL_INT, 3 };
+	private static final float[] OFFER_PRICES = { 10f, 4f, 60f, 10f, 4f, 60f, 10f, 4f, 60f, DiscountRow.NULL_PRICE };
+	private static final float[] ALO_PRICES = { DiscountRow.NULL_PRICE, 1.5f, 8f };
+
+	private EvaluationFixture() {
+	}
+
+	/**
+	 * Discounts 1 (valid, 12 months, ALO), 2 (expired), 3 (restricted to price group 10,
+	 * suspension allowed), 4 (price group 20 prohibited, 3 months) and 6 (not valid yet);
+	 * discount 5 has no configuration.
+	 */
+	static ConfigSnapshot snapshot(long version) {
+		List<DynDiscConf> confs = List.of(
+				conf(1, LocalDateTime.of(2025, 1, 1, 0, 0), null, 12, true, false),
+				conf(2, LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2026, 6, 30, 0, 0), 6, false, false),
+				conf(3, null, LocalDateTime.of(2027, 12, 31, 0, 0), null, false, true),
+				conf(4, LocalDateTime.of(2025, 6, 1, 0, 0), null, 3, true, false),
+				conf(6, LocalDateTime.of(2026, 10, 1, 0, 0), null, 12, false, false));
+		List<DynDiscOffer> offers = List.of(
+				offer(11, 1, 100, 200, 5f, 2f, LocalDateTime.of(2025, 1, 1, 0, 0), null, true, true),
+				offer(12, 1, -1, -1, 3f, 1f, null, null, false, false),
+				offer(21, 2, -1, -1, 4f, 0f, null, null, false, false),
+				offer(31, 3, 100, -1, 50f, 0f, null, null, false, false),
+				offer(41, 4, -1, 200, 4f, 6f, null, LocalDateTime.of(2026, 1, 1, 0, 0), false, false),
+				offer(42, 4, 300, 201, 2f, 1f, LocalDateTime.of(2026, 3, 1, 0, 0), null, false, false),
+				offer(61, 6, -1, -1, 1f, 0f, null, null, false, false));
+		List<DynDiscPriceGroup> priceGroups = List.of(priceGroup(3, "10", true, false), priceGroup(4, "20", false, true));
+
+		DynDiscFreeMonth freeMonth = new DynDiscFreeMonth();
+		freeMonth.setId(new DynDiscFreeMonthId(11, 2));
+		DynDiscSpecialMonth specialMonth = new DynDiscSpecialMonth();
+		specialMonth.setId(new DynDiscSpecialMonthId(11, 3));
+		specialMonth.setOfferDiscAmt(7f);
+		specialMonth.setAloDiscAmt(3f);
+
+		return ConfigSnapshot.build(version, Map.of(), List.of(), confs, offers, priceGroups, List.of(specialMonth),
+				List.of(freeMonth));
+	}
+
+	static DynDiscConf conf(int discId, LocalDateTime validFrom, LocalDateTime validTo, Integer duration,
+			Boolean aloDiscInd, Boolean suspInd) {
+		DynDiscConf conf = new DynDiscConf();
+		conf.setDiscId(discId);
+		conf.setValidFrom(validFrom);
+		conf.setValidTo(validTo);
+		conf.setDuration(duration);
+		conf.setAloDiscInd(aloDiscInd);
+		conf.setSuspInd(suspInd);
+		conf.setOccSncode(1000 + discId);
+		conf.setOccGlcode("GL" + discId);
+		conf.setOccRemark("Discount " + discId);
+		return conf;
+	}
+
+	static DynDiscOffer offer(int offerId, int discId, int tmcode, int sncode, Float offerDiscAmt, Float aloDiscAmt,
+			LocalDateTime eligStart, LocalDateTime eligEnd, Boolean freeMonthInd, Boolean specialMonthInd) {
+		DynDiscOffer offer = new DynDiscOffer();
+		offer.setOfferId(offerId);
+		offer.setDiscId(discId);
+		offer.setTmcode(tmcode);
+		offer.setSncode(sncode);
+		offer.setOfferDiscAmt(offerDiscAmt);
+		offer.setAloDiscAmt(aloDiscAmt);
+		offer.setEligStartDate(eligStart);
+		offer.setEligEndDate(eligEnd);
+		offer.setFreeMonthInd(freeMonthInd);
+		offer.setSpecialMonthInd(specialMonthInd);
+		return offer;
+	}
+
+	private static DynDiscPriceGroup priceGroup(int discId, String prgcode, boolean restrict, boolean prohibit) {
+		DynDiscPriceGroup priceGroup = new DynDiscPriceGroup();
+		priceGroup.setId(new DynDiscPriceGroupId(discId, prgcode));
+		priceGroup.setRestrictInd(restrict);
+		priceGroup.setProhibitInd(prohibit);
+		return priceGroup;
+	}
+
+	/**
+	 * Assignments of {@code count} contracts by co_id, in co_id order; some contracts have none.
+	 */
+	static Map<Integer, List<DiscountRow>> contracts(long seed, int count) {
+		Random random = new Random(seed);
+		Map<Integer, List<DiscountRow>> contracts = new TreeMap<>();
+		for (int coId = 1; coId <= count; coId++) {
+			List<DiscountRow> rows = new ArrayList<>();
+			int assignments = random.nextInt(7);
+			for (int i = 0; i < assignments; i++) {
+				rows.add(row(random, coId, coId * 100L + i));
+			}
+			// The engines must not depend on the order the assignments are read in
+			Collections.shuffle(rows, random);
+			contracts.put(coId, rows);
+		}
+		return contracts;
+	}
+
+	static DiscountRow row(Random random, int coId, long assignId) {
+		return new DiscountRow(REQUEST_ID, assignId, pick(random, ASSIGN_DATES), 900, pick(random, DISC_IDS),
+				pick(random, APPLY_COUNTS), pick(random, OVW_APPLY_COUNTS), coId * 10, coId, date(2026, 8, 31),
+				PRG_CODES[random.nextInt(PRG_CODES.length)], pick(random, TM_CODES), pick(random, SN_CODES),
+				date(2025, 11, 1), OFFER_STATUSES[random.nextInt(OFFER_STATUSES.length)], pick(random, OFFER_PRICES),
+				random.nextBoolean() ? 500 : DiscountRow.NULL_INT, date(2025, 11, 1),
+				random.nextBoolean() ? 'A' : DiscountRow.NULL_CHAR, pick(random, ALO_PRICES));
+	}
+
+	/**
+	 * The same contracts in the columnar form read by the columnar engine.
+	 */
+	static DiscountColumns columns(Map<Integer, List<DiscountRow>> contracts) {
+		DiscountColumns.Builder builder = DiscountColumns.builder(REQUEST_ID);
+		contracts.values().stream().flatMap(List::stream).forEach(r -> builder.add(r.assignId(), r.assignDate(),
+				r.discSncode(), r.discId(), r.applyCount(), r.ovwApplyCount(), r.customerId(), r.coId(), r.lbcDate(),
+				r.prgcode(), r.tmCode(), r.offerSnCode(), r.offerValidFromDate(), r.offerStatus(), r.offerPrice(),
+				r.aloSnCode(), r.aloValidFromDate(), r.aloStatus(), r.aloPrice()));
+		return builder.build();
+	}
+
+	static DynDiscContract contract(int coId) {
+		DynDiscContract contract = new DynDiscContract();
+		contract.setRequestId(REQUEST_ID);
+		contract.setPackId(1);
+		contract.setCustomerId(coId * 10);
+		contract.setCoId(coId);
+		contract.setStatus("I");
+		return contract;
+	}
+
+	static DiscountMemo memo(boolean enabled) {
+		DiscountMemo memo = new DiscountMemo();
+		ReflectionTestUtils.setField(memo, "enabled", enabled);
+		ReflectionTestUtils.setField(memo, "maxSize", 10_000L);
+		memo.init();
+		return memo;
+	}
+
+	/**
+	 * Object engine: the contract-by-contract evaluation of {@link DiscountEvaluationService}.
+	 */
+	static DiscountEvaluationService objectEngine(DiscountMemo memo) {
+		DiscountCalculator calculator = new DiscountCalculator(memo);
+		ReflectionTestUtils.setField(calculator, "username", "DYN_DISC");
+		DiscountEvaluationService service = new DiscountEvaluationService(new DiscountValidator(memo), calculator);
+		ReflectionTestUtils.setField(service, "username", "DYN_DISC");
+		return service;
+	}
+
+	private static long date(int year, int month, int day) {
+		return DiscountRow.toEpochSecond(LocalDateTime.of(year, month, day, 0, 0));
+	}
+
+	private static long pick(Random random, long[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static int pick(Random random, int[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static float pick(Random random, float[] values) {
+		return values[random.nextInt(values.length)];
+	}
+}
@@ -0,0 +1,139 @@
+package com.atos.dynamicdiscount.processor.service.granting;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantOutbox;
+import com.atos.dynamicdiscount.processor.service.logging.DiscountLogService;
+import com.atos.dynamicdiscount.repository.DynDiscEvalHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantOutboxRepository;
+
+class GrantOutboxServiceTest {
+
+	private static final int REQUEST_ID = 7;
+
+	private final DynDiscGrantOutboxRepository outboxRepo = mock(DynDiscGrantOutboxRepository.class);
+	private final DynDiscEvalHistoryRepository evalRepo = mock(DynDiscEvalHistoryRepository.class);
+	private final DynDiscGrantHistoryRepository grantRepo = mock(DynDiscGrantHistoryRepository.class);
+	private final DiscountGrantingService grantService = mock(DiscountGrantingService.class);
+	private final DiscountLogService logService = mock(DiscountLogService.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private ThreadPoolTaskExecutor grantExecutor;
+	private GrantOutboxService outbox;
+
+	@BeforeEach
+	void setUp() {
+		grantExecutor = new ThreadPoolTaskExecutor();
+		grantExecutor.setCorePoolSize(1);
+		grantExecutor.initialize();
+		outbox = new GrantOutboxService(outboxRepo, evalRepo, grantRepo, grantService, logService,
+				mock(PlatformTransactionManager.class), jdbcTemplate, grantExecutor);
+		ReflectionTestUtils.setField(outbox, "grantMode", "inline");
+		ReflectionTestUtils.setField(outbox, "workerCount", 1);
+		ReflectionTestUtils.setField(outbox, "batchSize", 10);
+		ReflectionTestUtils.setField(outbox, "pollInterval", 10L);
+		ReflectionTestUtils.setField(outbox, "maxFailures", 2);
+		outbox.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		grantExecutor.shutdown();
+	}
+
+	@Test
+	void pendingGrantsOfAnEarlierRunAreGranted() {
+		when(outboxRepo.countPending(REQUEST_ID)).thenReturn(2L, 0L);
+		claims(List.of(row(1), row(2)), List.of());
+		histories(1, 2);
+
+		outbox.grantPending(REQUEST_ID);
+
+		verify(grantService).grantDiscount(any(), eq(grant(1)));
+		verify(grantService).grantDiscount(any(), eq(grant(2)));
+		verify(logService).recordGrantOutcome(REQUEST_ID, 101, grant(1));
+		verify(outboxRepo).markProcessed(REQUEST_ID, 1L);
+		verify(outboxRepo).markProcessed(REQUEST_ID, 2L);
+	}
+
+	@Test
+	void grantWithoutHistoryFailsAloneAndIsNotClaimedAgain() {
+		when(outboxRepo.countPending(REQUEST_ID)).thenReturn(3L, 0L);
+		claims(List.of(row(1), row(2), row(3)), List.of());
+		histories(1, 3);
+
+		outbox.grantPending(REQUEST_ID);
+
+		verify(outboxRepo).discard(REQUEST_ID, 2L);
+		verify(logService).recordGrantFailure(eq(REQUEST_ID), eq(102), contains("grant history not found"));
+		verify(grantService).grantDiscount(any(), eq(grant(1)));
+		verify(grantService).grantDiscount(any(), eq(grant(3)));
+		verify(outboxRepo).markProcessed(REQUEST_ID, 1L);
+		verify(outboxRepo).markProcessed(REQUEST_ID, 3L);
+		verify(outboxRepo, never()).markProcessed(REQUEST_ID, 2L);
+		verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class));
+	}
+
+	@Test
+	void nothingPendingStartsNoWorker() {
+		outbox.grantPending(REQUEST_ID);
+
+		verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class));
+	}
+
+	@SafeVarargs
+	@SuppressWarnings("unchecked")
+	private void claims(List<DynDiscGrantOutbox> first, List<DynDiscGrantOutbox>... next) {
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+				.thenReturn(first, (Object[]) next);
+	}
+
+	private void histories(long... assignIds) {
+		List<DynDiscEvalHistory> evals = Arrays.stream(assignIds).mapToObj(GrantOutboxServiceTest::eval).toList();
+		List<DynDiscGrantHistory> grants = Arrays.stream(assignIds).mapToObj(GrantOutboxServiceTest::grant).toList();
+		when(evalRepo.findAllById(anyList())).thenReturn(evals);
+		when(grantRepo.findAllById(anyList())).thenReturn(grants);
+	}
+
+	private static DynDiscGrantOutbox row(long assignId) {
+		DynDiscGrantOutbox row = new DynDiscGrantOutbox();
+		row.setRequestId(REQUEST_ID);
+		row.setAssignId(assignId);
+		row.setCustomerId(10);
+		row.setCoId(100 + (int) assignId);
+		return row;
+	}
+
+	private static DynDiscEvalHistory eval(long assignId) {
+		return DynDiscEvalHistory.builder().requestId(REQUEST_ID).assignId(assignId).customerId(10)
+				.coId(100 + (int) assignId).build();
+	}
+
+	private static DynDiscGrantHistory grant(long assignId) {
+		return DynDiscGrantHistory.builder().requestId(REQUEST_ID).assignId(assignId).offerDiscAmount(5f)
+				.aloDiscAmount(0f).build();
+	}
+}
@@ -0,0 +1,295 @@
+package com.atos.dynamicdiscount.processor.service.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.atos.dynamicdiscount.model.dto.DynDiscGrantEvalDTO;
+import com.atos.dynamicdiscount.model.entity.DynDiscContract;
+import com.atos.dynamicdiscount.model.entity.DynDiscEvalHistory;
+import com.atos.dynamicdiscount.model.entity.DynDiscGrantHistory;
+import com.atos.dynamicdiscount.repository.DynDiscAssignRepository;
+import com.atos.dynamicdiscount.repository.DynDiscContractRepository;
+import com.atos.dynamicdiscount.repository.DynDiscEvalHistoryRepository;
+import com.atos.dynamicdiscount.repository.DynDiscGrantHistoryRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements the lifecycle of one contract sends, with Hibernate and the real
+ * repositories running on a JDBC driver stub that records every executed statement: a granted
+ * contract is two history inserts and two updates, with no SELECT in between. The same contracts
+ * are then written by both writers, to compare the row-by-row statements with the JDBC batches.
+ */
+class DiscountLogServiceStatementTest {
+
+	private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+	private static final List<String> BATCHES = Collections.synchronizedList(new ArrayList<>());
+	private static final DataSource DATA_SOURCE = recordingDataSource();
+	private static final int CONTRACTS = 10;
+	private static final int FLUSH_SIZE = 4;
+	private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 9, 30, 0, 0);
+
+	private static LocalContainerEntityManagerFactoryBean factoryBean;
+	private static EntityManagerFactory entityManagerFactory;
+
+	private EntityManager entityManager;
+	private DiscountLogService logService;
+
+	@BeforeAll
+	static void bootHibernate() {
+		factoryBean = new LocalContainerEntityManagerFactoryBean();
+		factoryBean.setDataSource(DATA_SOURCE);
+		factoryBean.setPackagesToScan("com.atos.dynamicdiscount.model.entity");
+		factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		factoryBean.setJpaPropertyMap(Map.of(
+				"hibernate.dialect", "org.hibernate.dialect.OracleDialect",
+				"hibernate.boot.allow_jdbc_metadata_access", "false",
+				"hibernate.hbm2ddl.auto", "none"));
+		factoryBean.afterPropertiesSet();
+		entityManagerFactory = factoryBean.getObject();
+	}
+
+	@AfterAll
+	static void close() {
+		factoryBean.destroy();
+	}
+
+	@BeforeEach
+	void setUp() {
+		entityManager = entityManagerFactory.createEntityManager();
+		JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+		LifecycleBatchWriter batchWriter = new LifecycleBatchWriter(new JdbcTemplate(DATA_SOURCE));
+		ReflectionTestUtils.setField(batchWriter, "flushSize", FLUSH_SIZE);
+		logService = new DiscountLogService(repositories.getRepository(DynDiscContractRepository.class),
+				repositories.getRepository(DynDiscAssignRepository.class),
+				repositories.getRepository(DynDiscGrantHistoryRepository.class),
+				repositories.getRepository(DynDiscEvalHistoryRepository.class), batchWriter);
+		ReflectionTestUtils.setField(logService, "writerMode", "jpa");
+		entityManager.getTransaction().begin();
+		STATEMENTS.clear();
+		BATCHES.clear();
+	}
+
+	@AfterEach
+	void tearDown() {
+		entityManager.close();
+	}
+
+	@Test
+	void rowByRowWriterSendsOneStatementPerRow() {
+		for (int i = 0; i < CONTRACTS; i++) {
+			logService.recordDiscountLifecycle(granted(i), CUTOFF);
+		}
+		entityManager.flush();
+
+		// N inserts per history table and N updates per updated table, one round trip each
+		assertThat(BATCHES).isEmpty();
+		assertThat(STATEMENTS).hasSize(4 * CONTRACTS);
+		assertPerTable(STATEMENTS, CONTRACTS);
+	}
+
+	@Test
+	void batchWriterSendsOneBatchPerFlushSizeAndTable() {
+		ReflectionTestUtils.setField(logService, "writerMode", "batch");
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			for (int i = 0; i < CONTRACTS; i++) {
+				logService.recordDiscountLifecycle(granted(i), CUTOFF);
+			}
+			TransactionSynchronizationUtils.triggerBeforeCommit(false);
+			TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		// The same rows, in ceil(N / flush size) batches per table
+		int batchesPerTable = (CONTRACTS + FLUSH_SIZE - 1) / FLUSH_SIZE;
+		assertThat(STATEMENTS).hasSize(4 * CONTRACTS);
+		assertThat(BATCHES).hasSize(4 * batchesPerTable);
+		assertPerTable(BATCHES, batchesPerTable);
+	}
+
+	private static void assertPerTable(List<String> statements, int count) {
+		assertThat(statements).filteredOn(sql -> sql.startsWith("select")).isEmpty();
+		assertThat(statements).filteredOn(sql -> sql.startsWith("insert into dyn_disc_eval_history")).hasSize(count);
+		assertThat(statements).filteredOn(sql -> sql.startsWith("insert into dyn_disc_grant_history")).hasSize(count);
+		assertThat(statements).filteredOn(sql -> sql.startsWith("update dyn_disc_assign")).hasSize(count);
+		assertThat(statements).filteredOn(sql -> sql.startsWith("update dyn_disc_contract")).hasSize(count);
+	}
+
+	@Test
+	void grantedContractIsTwoInsertsAndTwoUpdates() {
+		logService.recordDiscountLifecycle(new DynDiscGrantEvalDTO(contract("I"), eval(), grant()), CUTOFF);
+		entityManager.flush();
+
+		assertThat(STATEMENTS).hasSize(4);
+		assertThat(STATEMENTS).filteredOn(sql -> sql.startsWith("select")).isEmpty();
+		assertThat(STATEMENTS).filteredOn(sql -> sql.startsWith("insert into dyn_disc_eval_history")).hasSize(1);
+		assertThat(STATEMENTS).filteredOn(sql -> sql.startsWith("insert into dyn_disc_grant_history")).hasSize(1);
+		assertThat(STATEMENTS).filteredOn(sql -> sql.startsWith("update dyn_disc_assign")).hasSize(1);
+		assertThat(STATEMENTS).filteredOn(sql -> sql.startsWith("update dyn_disc_contract")).hasSize(1);
+	}
+
+	@Test
+	void contractWithoutGrantIsOneUpdate() {
+		logService.recordDiscountLifecycle(new DynDiscGrantEvalDTO(contract("S"), null, null), CUTOFF);
+		entityManager.flush();
+
+		assertThat(STATEMENTS).hasSize(1);
+		assertThat(STATEMENTS.get(0)).startsWith("update dyn_disc_contract");
+	}
+
+	@Test
+	void invalidStatusIsRejectedBeforeTheUpdate() {
+		assertThatThrownBy(() -> logService.recordDiscountLifecycle(
+				new DynDiscGrantEvalDTO(contract("X"), null, null), CUTOFF))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Invalid status value: X");
+		assertThat(STATEMENTS).isEmpty();
+	}
+
+	private static DynDiscContract contract(String status) {
+		DynDiscContract contract = new DynDiscContract();
+		contract.setRequestId(1);
+		contract.setPackId(1);
+		contract.setCustomerId(10);
+		contract.setCoId(100);
+		contract.setStatus(status);
+		return contract;
+	}
+
+	// A granted contract of its own, with its own assignment
+	private static DynDiscGrantEvalDTO granted(int i) {
+		DynDiscContract contract = contract("I");
+		contract.setCoId(100 + i);
+		DynDiscEvalHistory eval = eval();
+		eval.setAssignId(1000L + i);
+		eval.setCoId(100 + i);
+		DynDiscGrantHistory grant = grant();
+		grant.setAssignId(1000L + i);
+		return new DynDiscGrantEvalDTO(contract, eval, grant);
+	}
+
+	private static DynDiscEvalHistory eval() {
+		return DynDiscEvalHistory.builder().requestId(1).assignId(1000L).customerId(10).coId(100)
+				.billPeriodEndDate(CUTOFF).discId(5).build();
+	}
+
+	private static DynDiscGrantHistory grant() {
+		return DynDiscGrantHistory.builder().requestId(1).assignId(1000L).offerDiscAmount(10f).aloDiscAmount(0f)
+				.aloDiscInd(false).currentApplyCount(1).lastApply(false).offerOccCreated(true).build();
+	}
+
+	// JDBC stub of an Oracle driver: statements succeed with one row updated, queries return no rows
+	private static DataSource recordingDataSource() {
+		Connection[] connection = new Connection[1];
+		connection[0] = proxy(Connection.class, (method, args) -> switch (method) {
+			case "prepareStatement", "prepareCall" -> statement((String) args[0], connection[0]);
+			case "createStatement" -> statement(null, connection[0]);
+			case "getMetaData" -> proxy(DatabaseMetaData.class, (name, ignored) -> switch (name) {
+				case "supportsBatchUpdates" -> true;
+				case "getDatabaseProductName" -> "Oracle";
+				case "getDriverName" -> "Oracle JDBC driver";
+				default -> null;
+			});
+			default -> null;
+		});
+		return proxy(DataSource.class, (method, args) -> "getConnection".equals(method) ? connection[0] : null);
+	}
+
+	private static PreparedStatement statement(String preparedSql, Connection connection) {
+		List<String> batch = new ArrayList<>();
+		return proxy(PreparedStatement.class, (method, args) -> {
+			String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+			switch (method) {
+			case "executeUpdate", "execute":
+				record(sql);
+				return 1;
+			case "executeQuery":
+				record(sql);
+				return proxy(ResultSet.class, (name, ignored) -> null);
+			case "addBatch":
+				batch.add(sql);
+				return null;
+			case "executeBatch":
+				batch.forEach(DiscountLogServiceStatementTest::record);
+				BATCHES.add(normalize(preparedSql));
+				int[] counts = new int[batch.size()];
+				Arrays.fill(counts, 1);
+				batch.clear();
+				return counts;
+			case "getUpdateCount":
+				return 1;
+			case "getConnection":
+				return connection;
+			case "getParameterMetaData":
+				return proxy(ParameterMetaData.class, (name, ignored) -> Types.VARCHAR);
+			default:
+				return null;
+			}
+		});
+	}
+
+	private static void record(String sql) {
+		STATEMENTS.add(normalize(sql));
+	}
+
+	private static String normalize(String sql) {
+		return sql.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	private interface Handler {
+		Object invoke(String method, Object[] args) throws Exception;
+	}
+
+	// Returns the handler's value, or the zero value of a primitive return type when it gives null
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (self, method, args) -> {
+			Object value = handler.invoke(method.getName(), args);
+			Class<?> returnType = method.getReturnType();
+			if (value != null || !returnType.isPrimitive() || returnType == void.class) {
+				return value;
+			}
+			if (returnType == boolean.class) {
+				return false;
+			}
+			if (returnType == long.class) {
+				return 0L;
+			}
+			return returnType == int.class ? 0 : null;
+		});
+	}
+}